@@ -1,24 +1,39 @@
 package ru.example.springboot.hibernate.list;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ru.example.springboot.hibernate.list.security.BoundedPasswordEncoder;
+
+import java.time.Duration;
 
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 public class SpringbootHibernateListApplication {
 
 	/**
 	 * Устанавливает нужный енкодер.
+	 * BCrypt выполняется в отдельном ограниченном пуле потоков, см. BoundedPasswordEncoder.
 	 *
-	 * @return BCryptPasswordEncoder
+	 * @param threads		кол-во потоков хеширования
+	 * @param queueCapacity	максимальная длина очереди хеширования
+	 * @param timeout		максимальное время ожидания хеширования
+	 * @param meterRegistry	реестр метрик
+	 * @return BCryptPasswordEncoder в ограниченном пуле потоков
 	 */
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public PasswordEncoder passwordEncoder(@Value("${password-hashing.threads}") int threads,
+										   @Value("${password-hashing.queue-capacity}") int queueCapacity,
+										   @Value("${password-hashing.timeout}") Duration timeout,
+										   MeterRegistry meterRegistry) {
+		return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, timeout, meterRegistry);
 	}
 
 	public static void main(String[] args) {
@@ -6,6 +6,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 import ru.example.springboot.hibernate.list.mapper.UserMapper;
 import ru.example.springboot.hibernate.list.model.*;
+import ru.example.springboot.hibernate.list.monitoring.SqlBudget;
 import ru.example.springboot.hibernate.list.service.UserService;
 
 import java.util.HashMap;
@@ -34,6 +35,7 @@ public class AuthRestController {
      * @return DTO с информацией о пользователе
      */
     @GetMapping("/info")
+    @SqlBudget(1)
     public UserDto getUserInfo(Authentication authentication) {
         UserEntity userEntity = (UserEntity) authentication.getPrincipal();
         Optional<UserEntity> optionalUser = userService.getUserByUsername(userEntity.getUsername());
@@ -52,6 +54,7 @@ public class AuthRestController {
      * @throws Exception если произошла ошибка аутентификации
      */
     @PostMapping("/login")
+    @SqlBudget(1)
     public TokenDetails loginUser(@RequestBody UserDto userDto) throws Exception {
 
         return userService.authenticate(userDto.getUsername(), userDto.getPassword());
@@ -64,6 +67,7 @@ public class AuthRestController {
      * @return сериализованный объект DTO зарегистрированного пользователя
      */
     @PostMapping("/register")
+    @SqlBudget(1)
     public UserDto registerUser(@RequestBody UserDto userDto) {
 
         UserEntity userEntity = userMapper.map(userDto);
@@ -76,6 +80,7 @@ public class AuthRestController {
      * @return список пользователей
      */
     @GetMapping("/users")
+    @SqlBudget(1)
     public List<UserDto> getAllUsersFromDataBase() {
         return userService.findAllUsers().stream()
                 .map(userEntity ->
@@ -3,7 +3,10 @@ package ru.example.springboot.hibernate.list.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.fge.jsonpatch.JsonPatchException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,8 +18,12 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.ModelAndView;
 import ru.example.springboot.hibernate.list.model.Task;
 import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
+import ru.example.springboot.hibernate.list.model.exception.PreconditionFailedException;
 import ru.example.springboot.hibernate.list.model.exception.ResourceNotFoundException;
+import ru.example.springboot.hibernate.list.model.exception.ServiceUnavailableException;
 import ru.example.springboot.hibernate.list.model.exception.UnauthorizedException;
+import ru.example.springboot.hibernate.list.monitoring.SqlBudgetExceededException;
 
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -61,6 +68,31 @@ public class GlobalExceptionHandler {
         return mav;
     }
 
+    /**
+     * Обработчик исключения BadRequestException.
+     * Выбрасывается если параметры запроса некорректны.
+     * Возвращает код состояния 400 (Bad Request) и тело ошибки.
+     *
+     * @param ex        пойманное исключение с описанием некорректного параметра
+     * @param request   запрос
+     * @return          объект Object с деталями проблемы
+     */
+    @ExceptionHandler(BadRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Object handleBadRequestException(BadRequestException ex, HttpServletRequest request) {
+
+        // вернуть JSON
+        if (isApiRequest(request)) {
+            return getResponseEntityForJson(HttpStatus.BAD_REQUEST, ex.getErrorCode(), ex.getMessage());
+        }
+
+        // вернуть http
+        ModelAndView mav = new ModelAndView("error");
+        mav.addObject("errorMessage", ex.getMessage());
+
+        return mav;
+    }
+
     /**
      * Обработчик исключения ConstraintViolationException.
      * Выбрасывается при проверке валидности на уровне параметров метода.
@@ -234,6 +266,31 @@ public class GlobalExceptionHandler {
         return mav;
     }
 
+    /**
+     * Обработчик исключения SqlBudgetExceededException.
+     * Выбрасывается если метод контроллера превысил свой бюджет SQL-запросов (только при sql-budget.fail-on-exceed=true).
+     * Возвращает код состояния 500 (Internal Server Error) и тело ошибки, ответ сохраняет заголовки статистики SQL.
+     *
+     * @param ex        исключение, сигнализирующее о превышении бюджета
+     * @param request   запрос
+     * @return          объект Object с деталями проблемы
+     */
+    @ExceptionHandler(SqlBudgetExceededException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public Object handleSqlBudgetExceededException(SqlBudgetExceededException ex, HttpServletRequest request) {
+
+        // вернуть JSON
+        if (isApiRequest(request)) {
+            return getResponseEntityForJson(HttpStatus.INTERNAL_SERVER_ERROR, "SQL_BUDGET_EXCEEDED", ex.getMessage());
+        }
+
+        // вернуть http
+        ModelAndView mav = new ModelAndView("error");
+        mav.addObject("errorMessage", ex.getMessage());
+
+        return mav;
+    }
+
     /**
      * Обработчик исключения UnauthorizedException.
      * Выбрасывается если не авторизованный пользователь пытается получить
@@ -260,6 +317,59 @@ public class GlobalExceptionHandler {
         return mav;
     }
 
+    /**
+     * Обработчик исключений PreconditionFailedException и OptimisticLockingFailureException.
+     * Выбрасываются если задачу изменили после того, как клиент ее получил.
+     * Возвращает код состояния 412 (Precondition Failed) и тело ошибки.
+     *
+     * @param ex        исключение, сигнализирующее о несовпадении версий
+     * @param request   запрос
+     * @return          объект Object с деталями проблемы
+     */
+    @ExceptionHandler({PreconditionFailedException.class, OptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public Object handlePreconditionFailedException(RuntimeException ex, HttpServletRequest request) {
+
+        // вернуть JSON
+        if (isApiRequest(request)) {
+            return getResponseEntityForJson(HttpStatus.PRECONDITION_FAILED, "PRECONDITION_FAILED", ex.getMessage());
+        }
+
+        // вернуть http
+        ModelAndView mav = new ModelAndView("error");
+        mav.addObject("errorMessage", ex.getMessage());
+
+        return mav;
+    }
+
+    /**
+     * Обработчик исключения ServiceUnavailableException.
+     * Выбрасывается если сервис перегружен, например, пул хеширования паролей заполнен.
+     * Возвращает код состояния 503 (Service Unavailable), заголовок Retry-After и тело ошибки.
+     *
+     * @param ex        исключение, сигнализирующее о перегрузке
+     * @param request   запрос
+     * @param response  ответ
+     * @return          объект Object с деталями проблемы
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Object handleServiceUnavailableException(ServiceUnavailableException ex, HttpServletRequest request, HttpServletResponse response) {
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+
+        // вернуть JSON
+        if (isApiRequest(request)) {
+            return getResponseEntityForJson(HttpStatus.SERVICE_UNAVAILABLE, ex.getErrorCode(), ex.getMessage());
+        }
+
+        // вернуть http
+        ModelAndView mav = new ModelAndView("error");
+        mav.addObject("errorMessage", ex.getMessage());
+
+        return mav;
+    }
+
     /**
      * Проверяет какой формат нужно будет отдавать JSON или http.
      *
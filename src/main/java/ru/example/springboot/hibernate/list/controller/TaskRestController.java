@@ -1,19 +1,43 @@
 package ru.example.springboot.hibernate.list.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.github.fge.jsonpatch.JsonPatch;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.example.springboot.hibernate.list.mapper.TaskMapper;
 import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskBatchResult;
+import ru.example.springboot.hibernate.list.model.TaskChanges;
 import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskPage;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.TaskStatusBulkUpdate;
 import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
+import ru.example.springboot.hibernate.list.model.exception.PreconditionFailedException;
+import ru.example.springboot.hibernate.list.model.exception.ResourceNotFoundException;
+import ru.example.springboot.hibernate.list.monitoring.SqlBudget;
+import ru.example.springboot.hibernate.list.service.TaskChangeFeed;
+import ru.example.springboot.hibernate.list.service.TaskChangeLog;
 import ru.example.springboot.hibernate.list.service.TaskService;
+import ru.example.springboot.hibernate.list.service.TaskStatusCounters;
+import ru.example.springboot.hibernate.list.util.TaskCursor;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * REST контроллер для управления задачами.
@@ -37,17 +61,167 @@ public class TaskRestController {
     private final TaskService taskService;
 
     /**
-     * Возвращает список всех задач.
+     * Счетчики задач пользователей по статусам.
      *
-     * @return список объектов Task
+     * @see TaskStatusCounters
+     */
+    private final TaskStatusCounters taskStatusCounters;
+
+    /**
+     * Лента изменений задач для подключений SSE.
+     *
+     * @see TaskChangeFeed
+     */
+    private final TaskChangeFeed taskChangeFeed;
+
+    /**
+     * Журнал изменений задач для синхронизации клиентов.
+     *
+     * @see TaskChangeLog
+     */
+    private final TaskChangeLog taskChangeLog;
+
+    /**
+     * Используется для сериализации задач при выгрузке.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Размер страницы списка задач по умолчанию.
+     */
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+
+    /**
+     * Максимальный размер страницы списка задач.
+     */
+    private static final int MAX_PAGE_LIMIT = 500;
+
+    /**
+     * Тип содержимого выгрузки задач: JSON объекты, разделенные переводом строки.
+     */
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * Возвращает страницу списка задач (keyset-пагинация).
+     *
+     * @param after      курсор, полученный в ответе на запрос предыдущей страницы
+     * @param limit      максимальное кол-во задач на странице
+     * @param webRequest запрос, используется для проверки заголовка If-None-Match
+     * @return           страница задач и курсор следующей страницы или 304, если страница не изменилась
      */
     @GetMapping("/tasks")
-    public List<TaskDto> getAllTasks() {
+    @SqlBudget(2)
+    public ResponseEntity<TaskPage> getAllTasks(@RequestParam(name = "after", required = false) String after,
+                                                @RequestParam(name = "limit", defaultValue = "" + DEFAULT_PAGE_LIMIT) int limit,
+                                                WebRequest webRequest) {
+
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new BadRequestException("Parameter 'limit' must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+
+        Long afterId = TaskCursor.decode(after);
+
+        // клиент уже имеет страницу: сверяем только сводную версию, не выбирая задачи
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(pageETag(taskService.findPageVersion(afterId, limit)))) {
+            return null;
+        }
+
+        List<TaskDto> items = taskService.findPage(afterId, limit);
+
+        String nextCursor = items.size() < limit ? null : TaskCursor.encode(items.getLast().getId());
 
-        return taskService.findAll()
-                .stream()
-                .map(task -> new TaskDto(task.getId(), task.getDescription(), task.getStatus(), task.getUser().getUsername()))
-                .collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .eTag(pageETag(taskService.pageVersion(items)))
+                .body(new TaskPage(items, nextCursor));
+    }
+
+    /**
+     * Возвращает кол-во задач текущего пользователя по каждому статусу.
+     *
+     * @param authentication    информация о текущем пользователе
+     * @return                  структура состоящая из статуса и кол-ва задач в этом статусе
+     */
+    @GetMapping("/tasks/summary")
+    @SqlBudget(1)
+    public Map<TaskStatus, Long> getTasksSummary(Authentication authentication) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+
+        return taskStatusCounters.get(user.getUsername());
+    }
+
+    /**
+     * Выгружает все задачи текущего пользователя в формате NDJSON (один JSON объект на строку).
+     * Каждая задача пишется в поток ответа сразу после чтения из БД.
+     *
+     * @param authentication    информация о текущем пользователе
+     * @param response          HTTP-ответ, в поток которого пишутся задачи
+     * @throws IOException      если при записи в поток ответа возникла ошибка
+     */
+    @GetMapping(path = "/tasks/export", produces = NDJSON_MEDIA_TYPE)
+    public void exportTasks(Authentication authentication,
+                            HttpServletResponse response) throws IOException {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+        ObjectWriter writer = objectMapper.writerFor(TaskDto.class);
+
+        response.setContentType(NDJSON_MEDIA_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+
+        try {
+            taskService.exportByUserUsername(user.getUsername(), task -> {
+                try {
+                    out.write(writer.writeValueAsBytes(task));
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Подключает клиента к ленте изменений задач текущего пользователя (Server-Sent Events).
+     * События created, updated и deleted содержат изменение задачи, событие resync означает,
+     * что клиент пропустил события и должен перечитать список задач.
+     *
+     * @param authentication    информация о текущем пользователе
+     * @param lastEventId       идентификатор последнего полученного события при переподключении
+     * @return                  SseEmitter подключения
+     */
+    @GetMapping(path = "/tasks/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks(Authentication authentication,
+                                  @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+
+        return taskChangeFeed.subscribe(user.getUsername(), lastEventId);
+    }
+
+    /**
+     * Возвращает изменения задач текущего пользователя с момента предыдущей синхронизации:
+     * созданные и измененные задачи и идентификаторы удаленных.
+     * Если в ответе выставлен флаг resync, клиент должен перечитать список задач целиком
+     * и дальше запрашивать изменения с полученным курсором.
+     *
+     * @param since             курсор из предыдущего ответа, без курсора возвращается resync
+     * @param authentication    информация о текущем пользователе
+     * @return                  изменения задач и курсор следующей синхронизации
+     */
+    @GetMapping("/tasks/changes")
+    @SqlBudget(2)
+    public TaskChanges getTaskChanges(@RequestParam(name = "since", required = false) String since,
+                                      Authentication authentication) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+
+        return taskChangeLog.findChangesSince(user.getUsername(), since);
     }
 
     /**
@@ -57,6 +231,7 @@ public class TaskRestController {
      * @return      созданная задача
      */
     @PostMapping("/tasks")
+    @SqlBudget(3)
     public TaskDto createTask(@RequestBody Task task,
                               Authentication authentication) {
 
@@ -66,66 +241,140 @@ public class TaskRestController {
     }
 
     /**
-     * Возвращает задачу по идентификатору.
+     * Создает пакет задач в одной транзакции.
+     * Задачи, не прошедшие валидацию, не создаются и перечисляются в списке ошибок ответа.
      *
-     * @param id    идентификатор задачи
-     * @return      найденная задача
+     * @param tasks             задачи, переданные в теле запроса
+     * @param authentication    информация о текущем пользователе
+     * @return                  созданные задачи и ошибки валидации
      */
-    @GetMapping("/tasks/{id}")
-    public TaskDto getTask(@PathVariable("id") Long id) {
+    @PostMapping("/tasks/batch")
+    public TaskBatchResult createTasks(@RequestBody List<Task> tasks,
+                                       Authentication authentication) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
 
-        return taskMapper.map(taskService.findById(id));
+        return taskService.saveAll(tasks, user);
+    }
 
+    /**
+     * Возвращает задачу по идентификатору.
+     *
+     * @param id            идентификатор задачи
+     * @param webRequest    запрос, используется для проверки заголовка If-None-Match
+     * @return              найденная задача или 304, если задача не изменилась
+     * @throws ResourceNotFoundException если задача не найдена
+     */
+    @GetMapping("/tasks/{id}")
+    @SqlBudget(2)
+    public ResponseEntity<TaskDto> getTask(@PathVariable("id") Long id,
+                                           WebRequest webRequest) {
+
+        // клиент уже имеет задачу: сверяем только версию, не загружая задачу
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Long version = taskService.findVersionById(id);
+            // без задачи нет и ETag: иначе If-None-Match: * ответил бы 304 на несуществующую задачу
+            if (version == null) {
+                throw new ResourceNotFoundException("Task with id " + id + " not found");
+            }
+            if (webRequest.checkNotModified(taskETag(version))) {
+                return null;
+            }
+        }
+
+        TaskDto task = taskService.findDtoById(id);
+
+        return ResponseEntity.ok()
+                .eTag(taskETag(task.getVersion()))
+                .body(task);
     }
 
     /**
      * Обновляет данные задачи по идентификатору.
+     * Если передан заголовок If-Match, задача обновляется только при совпадении версии.
      *
      * @param id            идентификатор задачи, которую нужно обновить
      * @param changedTask   задача, данные которой нужно перенести в обновляемую задачу
+     * @param ifMatch       ETag задачи, полученный клиентом ранее
      * @return              обновленная задача
      */
     @PutMapping("/tasks/{id}")
-    public TaskDto updateTask(@PathVariable("id") Long id,
-                              @RequestBody Task changedTask,
-                              Authentication authentication) {
+    @SqlBudget(4)
+    public ResponseEntity<TaskDto> updateTask(@PathVariable("id") Long id,
+                                              @RequestBody Task changedTask,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              Authentication authentication) {
 
-        setUserFromAuthentication(changedTask, authentication);
+        UserEntity user = (UserEntity) authentication.getPrincipal();
 
-        return taskMapper.map(taskService.update(id, changedTask));
+        return withETag(taskService.update(id, user.getUsername(), changedTask, parseIfMatch(ifMatch)));
 
     }
 
     /**
      * Обновляет статус задачи по идентификатору (полное обновление объекта).
+     * Если передан заголовок If-Match, задача обновляется только при совпадении версии.
      *
      * @param id            идентификатор задачи, статус которой нужно обновить
      * @param changedTask   задача, данные которой нужно перенести в обновляемую задачу
+     * @param ifMatch       ETag задачи, полученный клиентом ранее
      * @return              задача после обновления статуса
      */
     @PutMapping("/tasks/{id}/status")
-    public TaskDto updateStatus(@PathVariable("id") Long id,
-                                @RequestBody Task changedTask,
-                                Authentication authentication) {
+    @SqlBudget(3)
+    public ResponseEntity<TaskDto> updateStatus(@PathVariable("id") Long id,
+                                                @RequestBody Task changedTask,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                Authentication authentication) {
 
-        setUserFromAuthentication(changedTask, authentication);
+        UserEntity user = (UserEntity) authentication.getPrincipal();
 
-        return taskMapper.map(taskService.update(id, changedTask.getStatus()));
+        return withETag(taskService.update(id, user.getUsername(), changedTask.getStatus(), parseIfMatch(ifMatch)));
 
     }
 
     /**
      * Обновляет статус задачи, применяя JSON Patch к статусу (частичное обновление объекта).
+     * Если передан заголовок If-Match, патч применяется только при совпадении версии.
      *
-     * @param id    идентификатор задачи, статус которой нужно обновить
-     * @param patch JSON Patch для обновления статуса
-     * @return      задача после применения патча
+     * @param id        идентификатор задачи, статус которой нужно обновить
+     * @param patch     JSON Patch для обновления статуса
+     * @param ifMatch   ETag задачи, полученный клиентом ранее
+     * @return          задача после применения патча
      */
     @PatchMapping(path = "/tasks/{id}/status", consumes = "application/json-patch+json")
-    public TaskDto updateStatus(@PathVariable("id") Long id, @RequestBody JsonPatch patch) {
+    @SqlBudget(4)
+    public TaskDto updateStatus(@PathVariable("id") Long id,
+                                @RequestBody JsonPatch patch,
+                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                Authentication authentication) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+
+        return taskMapper.map(taskService.update(id, user.getUsername(), patch, parseIfMatch(ifMatch)));
+
+    }
+
+    /**
+     * Изменяет статус нескольких задач текущего пользователя одним запросом к БД.
+     *
+     * @param bulkUpdate        идентификаторы задач и новый статус
+     * @param authentication    информация о текущем пользователе
+     * @return                  структура состоящая из нового статуса и кол-ва измененных задач
+     */
+    @PatchMapping(path = "/tasks/status", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @SqlBudget(2)
+    public Map<String, String> updateStatuses(@RequestBody TaskStatusBulkUpdate bulkUpdate,
+                                              Authentication authentication) {
+
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+        int updated = taskService.updateStatus(bulkUpdate.getIds(), bulkUpdate.getStatus(), user.getUsername());
 
-        return taskMapper.map(taskService.update(id, patch));
+        Map<String, String> results = new HashMap<>(2);
+        results.put("status", String.valueOf(bulkUpdate.getStatus()));
+        results.put("updated", String.valueOf(updated));
 
+        return results;
     }
 
     /**
@@ -134,9 +383,12 @@ public class TaskRestController {
      * @param id    идентификатор задачи, которую нужно удалить
      */
     @DeleteMapping("/tasks/{id}")
-    public Map<String, String> deleteTask(@PathVariable("id") Long id) {
+    @SqlBudget(3)
+    public Map<String, String> deleteTask(@PathVariable("id") Long id,
+                                          Authentication authentication) {
 
-        taskService.deleteById(id);
+        UserEntity user = (UserEntity) authentication.getPrincipal();
+        taskService.deleteById(id, user.getUsername());
 
         Map<String, String> results = new HashMap<>(2);
         results.put("userId", id.toString());
@@ -145,6 +397,67 @@ public class TaskRestController {
         return results;
     }
 
+    /**
+     * Вспомогательный метод, формирует строгий ETag задачи по ее версии.
+     *
+     * @param version   версия задачи
+     * @return          ETag в кавычках
+     */
+    private String taskETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Вспомогательный метод, извлекает ожидаемую версию задачи из заголовка If-Match.
+     *
+     * @param ifMatch   значение заголовка If-Match
+     * @return          ожидаемая версия, null если заголовок не передан или равен "*"
+     * @throws PreconditionFailedException если ETag не является строгим ETag задачи
+     */
+    private Long parseIfMatch(String ifMatch) throws PreconditionFailedException {
+
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        String etag = ifMatch.trim();
+        if (etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must contain a strong ETag of the task: " + ifMatch);
+        }
+
+        try {
+            return Long.parseLong(etag.substring(1, etag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match must contain a strong ETag of the task: " + ifMatch);
+        }
+    }
+
+    /**
+     * Вспомогательный метод, формирует ответ с задачей и ее ETag, если версия задачи известна.
+     *
+     * @param task  задача
+     * @return      ответ 200 с задачей
+     */
+    private ResponseEntity<TaskDto> withETag(TaskDto task) {
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (task.getVersion() != null) {
+            builder.eTag(taskETag(task.getVersion()));
+        }
+
+        return builder.body(task);
+    }
+
+    /**
+     * Вспомогательный метод, формирует строгий ETag страницы задач по ее сводной версии.
+     *
+     * @param pageVersion   сводная версия страницы
+     * @return              ETag в кавычках
+     */
+    private String pageETag(String pageVersion) {
+        return "\"p" + pageVersion + "\"";
+    }
+
     /**
      * Вспомогательный метод, достает текущего пользователя из Authentication
      * и устанавливает его задаче.
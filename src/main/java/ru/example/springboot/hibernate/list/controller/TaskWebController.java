@@ -6,15 +6,15 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskPage;
 import ru.example.springboot.hibernate.list.model.TaskStatus;
 import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
 import ru.example.springboot.hibernate.list.service.TaskService;
 import ru.example.springboot.hibernate.list.service.UserService;
+import ru.example.springboot.hibernate.list.util.TaskCursor;
 
 import java.security.Principal;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -33,17 +33,42 @@ public class TaskWebController {
     private final UserService userService;
 
     /**
-     * Показывает список всех задач (осн. страница).
+     * Размер страницы списка задач по умолчанию.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Максимальный размер страницы списка задач.
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Показывает страницу списка задач пользователя (осн. страница).
+     * Сортировка и разбиение на страницы выполняются в БД (keyset-пагинация).
      *
+     * @param after     курсор следующей страницы
+     * @param before    курсор предыдущей страницы
+     * @param size      кол-во задач на странице
      * @return имя шаблона основной страницы
      */
     @GetMapping({"/", "/index"})
-    public String indexPage(Model model, Principal principal) {
-        List<Task> tasks = taskService.findAllByUserUsername(principal.getName());
-        //List<Task> tasks = taskService.findAll();
-        // отсортируем по id
-        Collections.sort(tasks, Comparator.comparing(Task::getId));
-        model.addAttribute("tasks", tasks);
+    public String indexPage(@RequestParam(name = "after", required = false) String after,
+                            @RequestParam(name = "before", required = false) String before,
+                            @RequestParam(name = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                            Model model,
+                            Principal principal) {
+
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Parameter 'size' must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        TaskPage page = taskService.findPageByUserUsername(principal.getName(),
+                TaskCursor.decode(after), TaskCursor.decode(before), size);
+
+        model.addAttribute("tasks", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("previousCursor", page.getPreviousCursor());
+        model.addAttribute("size", size);
         return "index";
     }
 
@@ -99,14 +124,7 @@ public class TaskWebController {
                            Principal principal,
                            @ModelAttribute("task") Task changedTask) {
 
-        Optional<UserEntity> optionalUser = userService.getUserByUsername(principal.getName());
-        if (optionalUser.isEmpty()) {
-            new UsernameNotFoundException(String.format("Пользователь '%s' не найден", principal.getName()));
-        }
-
-        changedTask.setUser(optionalUser.get());
-
-        taskService.update(id, changedTask);
+        taskService.update(id, principal.getName(), changedTask);
         model.addAttribute("message", "Задача с id = '" + id + "' была изменена.");
         return "redirect:/index";
     }
@@ -119,9 +137,10 @@ public class TaskWebController {
      */
     @GetMapping("/delete/{id}")
     public String deleteTask(@PathVariable Long id,
-                             Model model) {
+                             Model model,
+                             Principal principal) {
 
-        taskService.deleteById(id);
+        taskService.deleteById(id, principal.getName());
         model.addAttribute("isInfo", true);
         model.addAttribute("messageHeader", "Информация!");
         model.addAttribute("message", "Задача с id = '" + id + "' была успешно удалена.");
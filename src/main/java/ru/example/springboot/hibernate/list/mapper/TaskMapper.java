@@ -17,5 +17,6 @@ public interface TaskMapper {
     TaskDto map(Task task);
 
     @InheritInverseConfiguration
+    @Mapping(target = "updatedAt", ignore = true)
     Task map(TaskDto taskDto);
 }
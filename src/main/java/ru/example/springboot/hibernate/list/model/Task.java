@@ -7,24 +7,40 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.Objects;
 
 /**
  *  Сущность задачи. Представляет запись в таблице "tasks".
+ *  Хранится в кэше второго уровня (регион task, см. SecondLevelCacheConfig).
  */
 @Data
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "tasks_username_id_idx", columnList = "username, id"),
+        @Index(name = "tasks_username_updated_at_idx", columnList = "username, updated_at")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "task")
 public class Task {
 
-    /** Идентификатор задачи. Значение генерируется автоматически. */
+    /**
+     * Идентификатор задачи. Значение генерируется автоматически.
+     * Идентификаторы выделяются из последовательности блоками по 50 (pooled-оптимизатор),
+     * поэтому пакетная вставка не обращается к последовательности на каждую задачу.
+     */
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     private Long id;
 
     /** Описание задачи. Обязательно для заполнения. */
@@ -38,6 +54,22 @@ public class Task {
     @Enumerated(EnumType.STRING)
     private TaskStatus status = TaskStatus.TODO;
 
+    /** Версия задачи. Увеличивается при каждом изменении задачи. */
+    @Version
+    @Column(name = "version", nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    /**
+     * Время последнего изменения задачи. Выставляется при вставке и изменении сущности,
+     * а массовые UPDATE в {@code TaskDmlRepository} выставляют его явно.
+     * По нему выбираются изменения для синхронизации клиентов.
+     */
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    @ColumnDefault("current_timestamp")
+    private Instant updatedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "username")
     private UserEntity user;
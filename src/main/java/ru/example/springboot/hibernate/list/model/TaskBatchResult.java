@@ -0,0 +1,39 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат пакетного создания задач, который отдаем на фронт-энд.
+ * Содержит созданные задачи и ошибки валидации по каждой отклоненной задаче.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchResult {
+
+    /** Созданные задачи в порядке их следования в запросе. */
+    private List<TaskDto> created;
+
+    /** Ошибки по задачам, которые не прошли валидацию и не были созданы. */
+    private List<ItemError> errors;
+
+    /**
+     * Ошибка валидации одной задачи из пакета.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+
+        /** Порядковый номер задачи в запросе, начиная с 0. */
+        private int index;
+
+        /** Описание нарушений. */
+        private String message;
+    }
+
+}
@@ -0,0 +1,40 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Событие изменения задачи. Публикуется сервисом задач внутри транзакции, в которой
+ * задача была создана, изменена или удалена.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TaskChangedEvent {
+
+    /**
+     * Перечисление, содержит виды изменения задачи.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /** Вид изменения. */
+    private final Type type;
+
+    /** Идентификатор задачи. null, если изменено сразу несколько задач пользователя. */
+    private final Long taskId;
+
+    /** Имя пользователя, владельца задачи. */
+    private final String owner;
+
+    /** Статус задачи после изменения. null, если задача удалена или статус не известен. */
+    private final TaskStatus status;
+
+    /** Статус задачи до изменения. null, если задача создана или статус не известен. */
+    private final TaskStatus previousStatus;
+
+}
@@ -0,0 +1,43 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Изменения задач пользователя с момента предыдущей синхронизации, которые отдаем на фронт-энд.
+ * Содержит созданные и измененные задачи, идентификаторы удаленных задач и курсор следующей синхронизации.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChanges {
+
+    /** Созданные и измененные задачи, упорядоченные по времени изменения. */
+    private List<TaskDto> items;
+
+    /** Идентификаторы удаленных задач. */
+    private List<Long> deleted;
+
+    /** Непрозрачный курсор, с которым нужно запросить следующие изменения. */
+    private String nextCursor;
+
+    /**
+     * true, если изменения выдать нельзя и клиент должен перечитать список задач целиком:
+     * курсор не передан, старше срока хранения удалений или изменений слишком много.
+     */
+    private boolean resync;
+
+    /**
+     * Создает ответ, требующий перечитать список задач целиком.
+     *
+     * @param nextCursor    курсор, с которым нужно запросить изменения после перечитывания
+     * @return              изменения без задач и с флагом resync
+     */
+    public static TaskChanges resync(String nextCursor) {
+        return new TaskChanges(List.of(), List.of(), nextCursor, true);
+    }
+
+}
@@ -15,4 +15,5 @@ public class TaskDto {
     private String description;
     private TaskStatus status = TaskStatus.TODO;
     private String owner;
+    private Long version;
 }
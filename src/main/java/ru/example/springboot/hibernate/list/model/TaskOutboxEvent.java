@@ -0,0 +1,64 @@
+package ru.example.springboot.hibernate.list.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Событие изменения задачи в исходящей очереди (transactional outbox). Представляет запись в таблице "task_outbox".
+ * Записывается в той же транзакции, что и изменение задачи, и удаляется после доставки всем получателям.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "task_outbox")
+public class TaskOutboxEvent {
+
+    /**
+     * Идентификатор события. Выделяется базой данных при вставке, после того как транзакция
+     * заблокировала строку задачи, поэтому события одной задачи упорядочены по id.
+     */
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Идентификатор задачи. null, если изменено сразу несколько задач пользователя. */
+    @Column(name = "task_id")
+    private Long taskId;
+
+    /** Имя пользователя, владельца задачи. */
+    @Column(name = "owner", length = 64)
+    private String owner;
+
+    /** Вид изменения. */
+    @Column(name = "type", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private TaskChangedEvent.Type type;
+
+    /** Статус задачи после изменения. null, если задача удалена или статус не известен. */
+    @Column(name = "status", length = 32)
+    @Enumerated(EnumType.STRING)
+    private TaskStatus status;
+
+    /** Статус задачи до изменения. null, если задача создана или статус не известен. */
+    @Column(name = "previous_status", length = 32)
+    @Enumerated(EnumType.STRING)
+    private TaskStatus previousStatus;
+
+    /** Время фиксации изменения. */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+}
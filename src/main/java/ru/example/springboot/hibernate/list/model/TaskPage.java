@@ -0,0 +1,39 @@
+package ru.example.springboot.hibernate.list.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница списка задач, которую отдаем на фронт-энд.
+ * Содержит задачи страницы и курсор для запроса следующей страницы.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPage {
+
+    /** Задачи текущей страницы, упорядоченные по id. */
+    private List<TaskDto> items;
+
+    /** Непрозрачный курсор следующей страницы. null, если страница последняя. */
+    private String nextCursor;
+
+    /** Непрозрачный курсор предыдущей страницы. null, если страница первая или пагинация только вперед. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String previousCursor;
+
+    /**
+     * Создает страницу с пагинацией только вперед.
+     *
+     * @param items         задачи страницы
+     * @param nextCursor    курсор следующей страницы
+     */
+    public TaskPage(List<TaskDto> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+
+}
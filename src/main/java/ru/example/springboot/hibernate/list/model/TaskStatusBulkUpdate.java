@@ -0,0 +1,23 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Запрос на массовое изменение статуса задач, который приходит с фронт-энда.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStatusBulkUpdate {
+
+    /** Идентификаторы задач, статус которых нужно изменить. */
+    private List<Long> ids;
+
+    /** Новый статус задач. */
+    private TaskStatus status;
+
+}
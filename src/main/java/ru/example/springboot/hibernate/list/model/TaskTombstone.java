@@ -0,0 +1,42 @@
+package ru.example.springboot.hibernate.list.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Запись об удаленной задаче. Представляет запись в таблице "task_tombstones".
+ * По ним клиенты, синхронизирующие задачи по изменениям, узнают об удалениях.
+ * Записи старше срока хранения удаляются в фоне, см. TaskChangeLog.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "task_tombstones", indexes = {
+        @Index(name = "task_tombstones_username_deleted_at_idx", columnList = "username, deleted_at"),
+        @Index(name = "task_tombstones_deleted_at_idx", columnList = "deleted_at")
+})
+public class TaskTombstone {
+
+    /** Идентификатор удаленной задачи. Идентификаторы задач не переиспользуются. */
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    /** Имя пользователя, владельца удаленной задачи. */
+    @Column(name = "username", nullable = false, length = 64)
+    private String username;
+
+    /** Время удаления задачи. */
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+}
@@ -0,0 +1,21 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Задача, измененная запросом UPDATE ... RETURNING: состояние после изменения и статус до него.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UpdatedTask {
+
+    /** Задача после изменения. */
+    private final TaskDto task;
+
+    /** Статус задачи до изменения. */
+    private final TaskStatus previousStatus;
+
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -12,6 +14,7 @@ import java.util.List;
 
 /**
  * Сущность пользователя. Представляет запись в таблице "users".
+ * Хранится в кэше второго уровня (регион user, см. SecondLevelCacheConfig), коллекция задач не кэшируется.
  */
 @Data
 @Builder(toBuilder = true)
@@ -19,6 +22,8 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 public class UserEntity {
 
     /** Идентификатор пользователя. Значение генерируется автоматически. */
@@ -0,0 +1,39 @@
+package ru.example.springboot.hibernate.list.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Date;
+
+/**
+ * Утверждения JWT, подпись которого уже проверена.
+ * Неизменяемый объект, поэтому его можно кэшировать и использовать из разных потоков.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class VerifiedToken {
+
+    /** Имя пользователя (subject). */
+    private final String username;
+    /** Роль пользователя. */
+    private final String role;
+    /** Идентификатор пользователя. */
+    private final Long userId;
+    /** Дата выпуска токена. */
+    private final Date issuedAt;
+    /** Срок действия токена до этой даты. */
+    private final Date expiresAt;
+
+    /**
+     * Проверяет, истек ли срок действия токена.
+     *
+     * @param nowMillis текущее время в миллисекундах
+     * @return true, если токен просрочен, иначе false
+     */
+    public boolean isExpired(long nowMillis) {
+        return expiresAt.getTime() <= nowMillis;
+    }
+
+}
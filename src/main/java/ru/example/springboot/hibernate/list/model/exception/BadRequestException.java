@@ -0,0 +1,28 @@
+package ru.example.springboot.hibernate.list.model.exception;
+
+/**
+ * Исключение возникающее, когда параметры запроса некорректны,
+ * аналогично ошибке 400.
+ */
+public class BadRequestException extends ApiException {
+
+    /**
+     * Создаёт новое исключение BadRequestException с указанным подробным сообщением
+     * и кодом BAD_REQUEST.
+     *
+     * @param message подробное сообщение, описывающее что не так с запросом
+     */
+    public BadRequestException(String message) {
+        super(message, "BAD_REQUEST");
+    }
+
+    /**
+     * Создаёт новое исключение BadRequestException с указанным подробным сообщением.
+     *
+     * @param message   подробное сообщение, описывающее что не так с запросом
+     * @param errorCode код ошибки
+     */
+    public BadRequestException(String message, String errorCode) {
+        super(message, errorCode);
+    }
+}
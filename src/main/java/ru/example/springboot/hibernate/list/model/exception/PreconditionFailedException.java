@@ -0,0 +1,28 @@
+package ru.example.springboot.hibernate.list.model.exception;
+
+/**
+ * Исключение возникающее, когда ресурс был изменен после того, как клиент его получил
+ * (версия из заголовка If-Match не совпала с текущей), аналогично ошибке 412.
+ */
+public class PreconditionFailedException extends ApiException {
+
+    /**
+     * Создаёт новое исключение PreconditionFailedException с указанным подробным сообщением
+     * и кодом PRECONDITION_FAILED.
+     *
+     * @param message подробное сообщение, описывающее несовпадение версий
+     */
+    public PreconditionFailedException(String message) {
+        super(message, "PRECONDITION_FAILED");
+    }
+
+    /**
+     * Создаёт новое исключение PreconditionFailedException с указанным подробным сообщением.
+     *
+     * @param message   подробное сообщение, описывающее несовпадение версий
+     * @param errorCode код ошибки
+     */
+    public PreconditionFailedException(String message, String errorCode) {
+        super(message, errorCode);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.example.springboot.hibernate.list.model.exception;
+
+import lombok.Getter;
+
+/**
+ * Исключение возникающее, когда сервис временно перегружен и не может обработать запрос,
+ * аналогично ошибке 503. Клиенту следует повторить запрос через retryAfterSeconds секунд.
+ */
+public class ServiceUnavailableException extends ApiException {
+
+    /** Через сколько секунд клиенту стоит повторить запрос. */
+    @Getter
+    private final long retryAfterSeconds;
+
+    /**
+     * Создаёт новое исключение ServiceUnavailableException с указанным подробным сообщением
+     * и кодом SERVICE_UNAVAILABLE.
+     *
+     * @param message           подробное сообщение, описывающее причину отказа
+     * @param retryAfterSeconds через сколько секунд клиенту стоит повторить запрос
+     */
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message, "SERVICE_UNAVAILABLE");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
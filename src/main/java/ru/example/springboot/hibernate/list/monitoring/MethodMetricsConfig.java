@@ -0,0 +1,37 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Подключает {@link MethodMetricsInterceptor} к публичным методам TaskService, UserService и JwtUtil.
+ * Перехватчик стоит снаружи транзакции, поэтому время включает начало и фиксацию транзакции.
+ */
+@Configuration
+public class MethodMetricsConfig {
+
+    private static final String POINTCUT =
+            "execution(public * ru.example.springboot.hibernate.list.service.TaskService.*(..))"
+            + " || execution(public * ru.example.springboot.hibernate.list.service.UserService.*(..))"
+            + " || execution(public * ru.example.springboot.hibernate.list.util.JwtUtil.*(..))";
+
+    /**
+     * Создает advisor, измеряющий методы сервисов.
+     *
+     * @param meterRegistry реестр метрик
+     * @return              advisor с перехватчиком MethodMetricsInterceptor
+     */
+    @Bean
+    public Advisor methodMetricsAdvisor(MeterRegistry meterRegistry) {
+        AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
+        advisor.setExpression(POINTCUT);
+        advisor.setAdvice(new MethodMetricsInterceptor(meterRegistry));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+}
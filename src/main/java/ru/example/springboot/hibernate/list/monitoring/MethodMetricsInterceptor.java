@@ -0,0 +1,86 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Измеряет время выполнения, кол-во вызовов и ошибок методов сервисов.
+ * <p>
+ * Метрики {@code service.method} (таймер с перцентилями p50/p99/p999) и {@code service.method.errors}
+ * с тегами class и method. Таймеры создаются один раз на метод и кэшируются,
+ * поэтому запись измерения не выделяет память и может быть включена постоянно.</p>
+ */
+public class MethodMetricsInterceptor implements MethodInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    /** Метрики по методу. Перегруженные методы с одинаковым именем пишут в одни и те же метрики. */
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Создает перехватчик.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public MethodMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        MethodMeters methodMeters = meters.get(invocation.getMethod());
+        if (methodMeters == null) {
+            methodMeters = meters.computeIfAbsent(invocation.getMethod(), this::register);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            methodMeters.errors.increment();
+            throw e;
+        } finally {
+            methodMeters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Регистрирует метрики метода.
+     *
+     * @param method    метод сервиса
+     * @return          метрики метода
+     */
+    private MethodMeters register(Method method) {
+
+        String className = method.getDeclaringClass().getSimpleName();
+
+        Timer timer = Timer.builder("service.method")
+                .tags("class", className, "method", method.getName())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        Counter errors = Counter.builder("service.method.errors")
+                .tags("class", className, "method", method.getName())
+                .register(meterRegistry);
+
+        return new MethodMeters(timer, errors);
+    }
+
+    /**
+     * Метрики одного метода.
+     *
+     * @param timer     время выполнения и кол-во вызовов
+     * @param errors    кол-во вызовов, завершившихся исключением
+     */
+    private record MethodMeters(Timer timer, Counter errors) {
+    }
+
+}
@@ -0,0 +1,89 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничивает кол-во DEBUG/TRACE сообщений указанных логгеров (например, SQL и security)
+ * до maxPerSecond в секунду. Остальные сообщения этих уровней отбрасываются до форматирования.
+ * <p>
+ * Подключается в logback-spring.xml:</p>
+ * <pre>
+ * &lt;turboFilter class="...SampledDebugTurboFilter"&gt;
+ *     &lt;loggerPrefixes&gt;org.hibernate.SQL,org.springframework.security&lt;/loggerPrefixes&gt;
+ *     &lt;maxPerSecond&gt;20&lt;/maxPerSecond&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private String[] loggerPrefixes = new String[0];
+    private int maxPerSecond = 20;
+
+    /** Текущая секунда и кол-во пропущенных в ней сообщений: старшие биты - секунда, младшие 20 - счетчик. */
+    private final AtomicLong window = new AtomicLong();
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+
+        // проверки isDebugEnabled() не ограничиваем, считаем только сами сообщения
+        if (format == null || level.isGreaterOrEqual(Level.INFO) || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        long second = System.nanoTime() / 1_000_000_000L;
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> COUNT_BITS;
+            long count = currentSecond == second ? current & COUNT_MASK : 0;
+            if (count >= maxPerSecond) {
+                return FilterReply.DENY;
+            }
+            if (window.compareAndSet(current, (second << COUNT_BITS) | (count + 1))) {
+                return FilterReply.NEUTRAL;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, относится ли логгер к ограничиваемым.
+     *
+     * @param loggerName    имя логгера
+     * @return              true, если имя начинается с одного из префиксов
+     */
+    private boolean matches(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param loggerPrefixes префиксы имен логгеров через запятую
+     */
+    public void setLoggerPrefixes(String loggerPrefixes) {
+        this.loggerPrefixes = Arrays.stream(loggerPrefixes.split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * @param maxPerSecond максимальное кол-во сообщений в секунду, не более 2^20
+     */
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = (int) Math.min(maxPerSecond, COUNT_MASK);
+    }
+
+}
@@ -0,0 +1,27 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Максимальное кол-во SQL-запросов, которое может выполнить метод контроллера за один HTTP-запрос.
+ * <p>
+ * Превышение пишется в лог, а при sql-budget.fail-on-exceed=true (в тестах) запрос завершается ошибкой
+ * SqlBudgetExceededException, чтобы регрессия вроде N+1 не дошла до релиза.</p>
+ *
+ * @see SqlBudgetInterceptor
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    /**
+     * @return максимальное кол-во SQL-запросов
+     */
+    int value();
+
+}
@@ -0,0 +1,17 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+/**
+ * Исключение возникающее, когда метод контроллера выполнил больше SQL-запросов, чем разрешено {@link SqlBudget}.
+ * Выбрасывается только при sql-budget.fail-on-exceed=true.
+ */
+public class SqlBudgetExceededException extends IllegalStateException {
+
+    /**
+     * Создаёт новое исключение SqlBudgetExceededException с указанным подробным сообщением.
+     *
+     * @param message подробное сообщение, описывающее превышение
+     */
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Собирает статистику SQL-запросов на время обработки HTTP-запроса методом контроллера.
+ * <p>
+ * После обработки пишет в лог кол-во запросов и время JDBC, предупреждает о превышении {@link SqlBudget}
+ * и о повторении одного и того же SQL не менее sql-budget.repeated-statement-threshold раз (вероятный N+1).
+ * Асинхронные ответы (выгрузка) не учитываются.</p>
+ */
+@Slf4j
+@Component
+public class SqlBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    @Value("${sql-budget.fail-on-exceed:false}")
+    private boolean failOnExceed;
+    @Value("${sql-budget.repeated-statement-threshold:5}")
+    private int repeatedStatementThreshold;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            SqlRequestStats.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlRequestStats.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        SqlRequestStats.clear();
+
+        String endpoint = request.getMethod() + " " + request.getRequestURI();
+        log.debug("{}: {} SQL statements, {} ms in JDBC", endpoint, stats.getStatements(), stats.getJdbcMillis());
+
+        Integer budget = budgetOf(handlerMethod.getMethod());
+        if (budget != null && stats.getStatements() > budget) {
+            log.warn("{}: SQL budget exceeded, {} statements, budget {}", endpoint, stats.getStatements(), budget);
+        }
+
+        Map.Entry<String, Integer> mostRepeated = stats.getMostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatedStatementThreshold) {
+            log.warn("{}: possible N+1, statement executed {} times: {}", endpoint, mostRepeated.getValue(), mostRepeated.getKey());
+        }
+    }
+
+    /**
+     * Проверяет, что метод контроллера уложился в свой бюджет SQL-запросов.
+     * Вызывается перед записью тела ответа, пока ответ еще можно заменить ошибкой.
+     *
+     * @param method    метод контроллера
+     * @param stats     статистика текущего запроса
+     * @throws SqlBudgetExceededException если бюджет превышен и включен sql-budget.fail-on-exceed
+     */
+    void checkBudget(Method method, SqlRequestStats stats) throws SqlBudgetExceededException {
+
+        Integer budget = budgetOf(method);
+        if (failOnExceed && budget != null && stats.getStatements() > budget) {
+            throw new SqlBudgetExceededException(String.format("%s.%s executed %d SQL statements, budget is %d",
+                    method.getDeclaringClass().getSimpleName(), method.getName(), stats.getStatements(), budget));
+        }
+    }
+
+    /**
+     * Возвращает бюджет SQL-запросов метода контроллера.
+     *
+     * @param method    метод контроллера
+     * @return          бюджет или null, если метод не аннотирован {@link SqlBudget}
+     */
+    private static Integer budgetOf(Method method) {
+        SqlBudget sqlBudget = method.getAnnotation(SqlBudget.class);
+        return sqlBudget == null ? null : sqlBudget.value();
+    }
+
+}
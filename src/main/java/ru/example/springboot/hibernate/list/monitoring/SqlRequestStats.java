@@ -0,0 +1,95 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика SQL-запросов, выполненных при обработке текущего HTTP-запроса.
+ * <p>
+ * Хранится в ThreadLocal потока, обрабатывающего запрос: сбор начинается в {@link SqlBudgetInterceptor},
+ * заполняется из {@link SqlStatementInspector} и {@link SqlTimingSessionListener}.
+ * Запросы вне HTTP-запроса (плановые задачи, выгрузка в отдельном потоке) не учитываются.</p>
+ */
+public final class SqlRequestStats {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    /** Кол-во выполненных SQL-запросов. */
+    private int statements;
+    /** Суммарное время выполнения запросов в JDBC. */
+    private long jdbcNanos;
+    /** Кол-во выполнений каждого текста SQL, позволяет заметить N+1. */
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+
+    private SqlRequestStats() {
+    }
+
+    /**
+     * Начинает сбор статистики в текущем потоке.
+     *
+     * @return новая статистика текущего потока
+     */
+    static SqlRequestStats start() {
+        SqlRequestStats stats = new SqlRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Возвращает статистику текущего потока.
+     *
+     * @return статистика или null, если поток не обрабатывает HTTP-запрос
+     */
+    public static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Заканчивает сбор статистики в текущем потоке.
+     */
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Учитывает подготовленный SQL-запрос.
+     *
+     * @param sql текст запроса
+     */
+    void onStatement(String sql) {
+        statements++;
+        statementCounts.merge(sql, 1, Integer::sum);
+    }
+
+    /**
+     * Учитывает время выполнения запроса в JDBC.
+     *
+     * @param nanos время в наносекундах
+     */
+    void onJdbcTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    /** @return кол-во выполненных SQL-запросов */
+    public int getStatements() {
+        return statements;
+    }
+
+    /** @return суммарное время выполнения запросов в JDBC в миллисекундах */
+    public long getJdbcMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcNanos);
+    }
+
+    /**
+     * Возвращает чаще всего повторявшийся текст SQL.
+     *
+     * @return текст и кол-во повторений или null, если запросов не было
+     */
+    public Map.Entry<String, Integer> getMostRepeated() {
+        return statementCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+
+}
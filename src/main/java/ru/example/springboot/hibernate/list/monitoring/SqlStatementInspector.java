@@ -0,0 +1,20 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы, которые Hibernate готовит в рамках текущего HTTP-запроса.
+ * Подключается свойством hibernate.session_factory.statement_inspector, текст запроса не изменяет.
+ */
+public class SqlStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.onStatement(sql);
+        }
+        return sql;
+    }
+
+}
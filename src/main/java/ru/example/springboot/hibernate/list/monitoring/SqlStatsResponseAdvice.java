@@ -0,0 +1,51 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Добавляет в ответы REST статистику SQL-запросов текущего HTTP-запроса:
+ * заголовки X-Sql-Statements (кол-во запросов) и X-Sql-Time (время JDBC в миллисекундах).
+ * Перед записью тела проверяет бюджет {@link SqlBudget} метода контроллера.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class SqlStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time";
+
+    private final SqlBudgetInterceptor sqlBudgetInterceptor;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats == null) {
+            return body;
+        }
+
+        response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+        response.getHeaders().set(TIME_HEADER, String.valueOf(stats.getJdbcMillis()));
+
+        if (returnType.getMethod() != null) {
+            sqlBudgetInterceptor.checkBudget(returnType.getMethod(), stats);
+        }
+
+        return body;
+    }
+
+}
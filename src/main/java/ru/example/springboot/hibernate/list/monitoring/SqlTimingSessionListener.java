@@ -0,0 +1,46 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Измеряет время выполнения SQL-запросов в JDBC в рамках текущего HTTP-запроса.
+ * Hibernate создает экземпляр на каждую сессию, подключается свойством hibernate.session.events.auto.
+ */
+public class SqlTimingSessionListener implements SessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(batchStart);
+    }
+
+    /**
+     * Добавляет время с момента start к статистике текущего запроса.
+     *
+     * @param start момент начала в единицах System.nanoTime()
+     */
+    private void record(long start) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            stats.onJdbcTime(System.nanoTime() - start);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.example.springboot.hibernate.list.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Диагностика закрепления (pinning) виртуальных потоков за потоками-носителями.
+ * <p>
+ * Виртуальный поток, заблокированный внутри synchronized (например, в JDBC-драйвере или Hibernate),
+ * не освобождает поток-носитель. Монитор подписывается на событие JFR jdk.VirtualThreadPinned,
+ * пишет в лог верхние кадры стека каждого закрепления дольше threshold
+ * и считает их в метрике {@code virtual-threads.pinned}.
+ * Включается свойством virtual-threads.pinning-diagnostics.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "virtual-threads.pinning-diagnostics", havingValue = "true")
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 12;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private RecordingStream recordingStream;
+
+    /**
+     * Создает монитор.
+     *
+     * @param threshold     минимальная длительность закрепления, которое попадет в лог
+     * @param meterRegistry реестр метрик
+     */
+    public VirtualThreadPinningMonitor(@Value("${virtual-threads.pinning-threshold:PT0.02S}") Duration threshold,
+                                       MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinnedCounter = Counter.builder("virtual-threads.pinned").register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+    }
+
+    @Override
+    public void destroy() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * Обрабатывает событие закрепления виртуального потока.
+     *
+     * @param event событие JFR
+     */
+    private void onPinned(RecordedEvent event) {
+
+        pinnedCounter.increment();
+
+        String stack = event.getStackTrace() == null ? "" : event.getStackTrace().getFrames().stream()
+                .limit(STACK_DEPTH)
+                .map(VirtualThreadPinningMonitor::format)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+
+        log.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), stack);
+    }
+
+    /**
+     * Форматирует кадр стека для лога.
+     *
+     * @param frame кадр стека
+     * @return      строка вида класс.метод(line номер)
+     */
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + "(line " + frame.getLineNumber() + ")";
+    }
+
+}
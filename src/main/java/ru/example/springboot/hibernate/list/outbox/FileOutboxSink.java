@@ -0,0 +1,74 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Получатель, дописывающий события исходящей очереди в локальный файл в формате NDJSON
+ * (один JSON объект на строку). Предназначен для тестов и локальной отладки,
+ * включается свойством {@code task-outbox.file-sink.path}.
+ */
+@Component
+@ConditionalOnProperty(name = "task-outbox.file-sink.path")
+public class FileOutboxSink implements TaskOutboxSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Создает получателя.
+     *
+     * @param path          файл, в который дописываются события; создается при первой записи
+     * @param objectMapper  используется для сериализации событий
+     */
+    public FileOutboxSink(@Value("${task-outbox.file-sink.path}") Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    /**
+     * Дописывает пакет событий в файл и сбрасывает его на диск.
+     *
+     * @param events    события, упорядоченные по id
+     * @throws UncheckedIOException если запись не удалась
+     */
+    @Override
+    public synchronized void deliver(List<TaskOutboxEvent> events) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (TaskOutboxEvent event : events) {
+                lines.write(objectMapper.writeValueAsBytes(event));
+                lines.write('\n');
+            }
+
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+}
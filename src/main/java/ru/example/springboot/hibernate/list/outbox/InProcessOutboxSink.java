@@ -0,0 +1,38 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+
+import java.util.List;
+
+/**
+ * Получатель, публикующий события исходящей очереди как события приложения.
+ * Слушатели {@code @EventListener} с параметром {@link TaskOutboxEvent} получают их
+ * в потоке доставки, ошибка слушателя приводит к повторной доставке пакета.
+ */
+@Component
+public class InProcessOutboxSink implements TaskOutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Создает получателя.
+     *
+     * @param eventPublisher    публикует события слушателям приложения
+     */
+    public InProcessOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public String name() {
+        return "in-process";
+    }
+
+    @Override
+    public void deliver(List<TaskOutboxEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+}
@@ -0,0 +1,144 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Записывает события изменения задач в исходящую очередь (таблица task_outbox) в той же транзакции,
+ * в которой изменены задачи. Если транзакция откатывается, события не записываются.
+ * <p>
+ * События транзакции накапливаются в памяти и вставляются перед фиксацией многострочными INSERT
+ * по {@value #ROWS_PER_INSERT} строк, поэтому транзакция добавляет один запрос, а не запрос на каждое событие.
+ * Доставкой событий получателям занимается {@link TaskOutboxRelay}.</p>
+ */
+@Component
+public class TaskOutbox {
+
+    /** Максимальное кол-во строк в одном INSERT. */
+    private static final int ROWS_PER_INSERT = 500;
+
+    private final EntityManager entityManager;
+
+    /**
+     * Создает исходящую очередь.
+     *
+     * @param entityManager используется для вставки событий в текущей транзакции
+     */
+    public TaskOutbox(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Добавляет событие в очередь текущей транзакции.
+     *
+     * @param event событие изменения задачи
+     * @throws IllegalStateException если событие опубликовано вне транзакции
+     */
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Task change event published outside of a transaction: " + event);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<TaskChangedEvent> pending = (List<TaskChangedEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            bind(pending);
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Привязывает очередь событий к текущей транзакции: перед фиксацией события вставляются,
+     * после завершения очередь отвязывается.
+     *
+     * @param pending   очередь событий транзакции
+     */
+    private void bind(List<TaskChangedEvent> pending) {
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(pending, Instant.now());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskOutbox.this);
+            }
+        });
+    }
+
+    /**
+     * Вставляет события в таблицу task_outbox.
+     *
+     * @param events    события транзакции в порядке публикации
+     * @param createdAt время фиксации изменений
+     */
+    private void write(List<TaskChangedEvent> events, Instant createdAt) {
+
+        // строки задач блокируются до вставки событий, поэтому id событий одной задачи растут в порядке фиксации
+        entityManager.flush();
+
+        for (int from = 0; from < events.size(); from += ROWS_PER_INSERT) {
+            List<TaskChangedEvent> chunk = events.subList(from, Math.min(events.size(), from + ROWS_PER_INSERT));
+
+            NativeQuery<?> insert = entityManager.createNativeQuery(insertSql(chunk.size())).unwrap(NativeQuery.class);
+            // без явного пространства запросов Hibernate считает, что native DML меняет любые таблицы,
+            // и очищает все регионы кэша второго уровня и кэш запросов
+            insert.addSynchronizedEntityClass(TaskOutboxEvent.class);
+            int position = 1;
+            for (TaskChangedEvent event : chunk) {
+                insert.setParameter(position++, event.getTaskId(), StandardBasicTypes.LONG);
+                insert.setParameter(position++, event.getOwner(), StandardBasicTypes.STRING);
+                insert.setParameter(position++, event.getType().name(), StandardBasicTypes.STRING);
+                insert.setParameter(position++, nameOf(event.getStatus()), StandardBasicTypes.STRING);
+                insert.setParameter(position++, nameOf(event.getPreviousStatus()), StandardBasicTypes.STRING);
+                insert.setParameter(position++, createdAt, StandardBasicTypes.INSTANT);
+            }
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Строит многострочный INSERT с позиционными параметрами.
+     *
+     * @param rows  кол-во строк
+     * @return      текст запроса
+     */
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "insert into task_outbox (task_id, owner, type, status, previous_status, created_at) values ");
+        int position = 1;
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append('(');
+            for (int column = 0; column < 6; column++) {
+                sql.append(column == 0 ? "?" : ", ?").append(position++);
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    private static String nameOf(TaskStatus status) {
+        return status == null ? null : status.name();
+    }
+
+}
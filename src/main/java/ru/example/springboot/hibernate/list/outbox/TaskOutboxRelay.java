@@ -0,0 +1,132 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+import ru.example.springboot.hibernate.list.repository.TaskOutboxRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Доставляет события из исходящей очереди всем получателям {@link TaskOutboxSink}.
+ * <p>
+ * Очередь читается пакетами по {@code task-outbox.batch-size} событий в порядке id. Пакет передается
+ * получателям и удаляется в одной транзакции, поэтому после сбоя он будет доставлен повторно
+ * (как минимум один раз). Если получатель завершился ошибкой, транзакция откатывается и пакет
+ * повторяется при следующем опросе: более поздние события не обгоняют недоставленные.</p>
+ * <p>
+ * Чтобы при нескольких экземплярах приложения события доставлял только один из них и порядок
+ * не нарушался, каждая транзакция доставки берет advisory-блокировку PostgreSQL.</p>
+ */
+@Slf4j
+@Component
+public class TaskOutboxRelay {
+
+    /** Ключ advisory-блокировки доставки. */
+    private static final long RELAY_LOCK_KEY = 0x7461736b6f7574L;
+
+    private final TaskOutboxRepository outboxRepository;
+    private final List<TaskOutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer lagTimer;
+    private final AtomicLong oldestCreatedAtMillis = new AtomicLong();
+
+    /**
+     * Создает доставщика событий и регистрирует его метрики.
+     *
+     * @param outboxRepository      репозиторий исходящей очереди
+     * @param sinks                 получатели событий
+     * @param transactionTemplate   открывает транзакцию на каждый пакет
+     * @param batchSize             максимальное кол-во событий в пакете
+     * @param meterRegistry         реестр метрик
+     */
+    public TaskOutboxRelay(TaskOutboxRepository outboxRepository,
+                           List<TaskOutboxSink> sinks,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${task-outbox.batch-size}") int batchSize,
+                           MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+
+        this.lagTimer = Timer.builder("tasks.outbox.lag")
+                .description("Time from commit of a task change to its delivery to all sinks")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        TimeGauge.builder("tasks.outbox.oldest.age", oldestCreatedAtMillis, TimeUnit.MILLISECONDS,
+                        createdAt -> createdAt.get() == 0 ? 0 : System.currentTimeMillis() - createdAt.get())
+                .description("Age of the oldest undelivered event seen by the last poll")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Доставляет накопившиеся события, пока очередь не опустеет
+     * или блокировку доставки держит другой экземпляр приложения.
+     */
+    @Scheduled(fixedDelayString = "${task-outbox.poll-interval}")
+    public void relay() {
+        while (Boolean.TRUE.equals(transactionTemplate.execute(this::relayBatch))) {
+            // следующий пакет доставляется в новой транзакции
+        }
+    }
+
+    /**
+     * Доставляет один пакет событий в текущей транзакции.
+     * Если получатель завершился ошибкой, транзакция помечается для отката.
+     *
+     * @param status    текущая транзакция
+     * @return          true, если пакет доставлен полностью и в очереди могут остаться события
+     */
+    private boolean relayBatch(TransactionStatus status) {
+
+        if (!outboxRepository.tryAdvisoryLock(RELAY_LOCK_KEY)) {
+            return false;
+        }
+
+        List<TaskOutboxEvent> batch = outboxRepository.findOldest(Limit.of(batchSize));
+        if (batch.isEmpty()) {
+            oldestCreatedAtMillis.set(0);
+            return false;
+        }
+        oldestCreatedAtMillis.set(batch.getFirst().getCreatedAt().toEpochMilli());
+
+        for (TaskOutboxSink sink : sinks) {
+            try {
+                sink.deliver(batch);
+                meterRegistry.counter("tasks.outbox.delivered", "sink", sink.name()).increment(batch.size());
+            } catch (RuntimeException ex) {
+                meterRegistry.counter("tasks.outbox.failures", "sink", sink.name()).increment();
+                log.warn("Failed to deliver {} outbox events starting from id {} to sink {}",
+                        batch.size(), batch.getFirst().getId(), sink.name(), ex);
+                status.setRollbackOnly();
+                return false;
+            }
+        }
+
+        outboxRepository.deleteByIds(batch.stream().map(TaskOutboxEvent::getId).toList());
+
+        Instant now = Instant.now();
+        batch.forEach(event -> lagTimer.record(Duration.between(event.getCreatedAt(), now)));
+
+        return batch.size() == batchSize;
+    }
+
+}
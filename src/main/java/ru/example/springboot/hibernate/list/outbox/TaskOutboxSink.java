@@ -0,0 +1,32 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+
+import java.util.List;
+
+/**
+ * Получатель событий изменения задач из исходящей очереди.
+ * <p>
+ * Доставка выполняется как минимум один раз: если какой-либо получатель завершился ошибкой,
+ * пакет будет доставлен повторно всем получателям, поэтому обработка должна быть идемпотентной
+ * (например, по id события). События одной задачи передаются в порядке их фиксации.</p>
+ */
+public interface TaskOutboxSink {
+
+    /**
+     * Возвращает имя получателя для метрик и логов.
+     *
+     * @return  имя получателя
+     */
+    String name();
+
+    /**
+     * Доставляет пакет событий. Метод должен вернуть управление только после того,
+     * как события сохранены или обработаны получателем.
+     *
+     * @param events    события, упорядоченные по id
+     * @throws RuntimeException если события не доставлены; пакет будет доставлен повторно
+     */
+    void deliver(List<TaskOutboxEvent> events);
+
+}
@@ -0,0 +1,43 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Открывает EntityManager на время обработки запроса (open-in-view) для всех маршрутов,
+ * кроме входа и регистрации.
+ * <p>
+ * Открытый на весь запрос EntityManager удерживает соединение с БД после первого запроса к ней.
+ * Вход и регистрация после чтения пользователя ждут пул хеширования паролей, поэтому волна входов
+ * заняла бы весь пул соединений. Для этих маршрутов каждый вызов репозитория берет соединение
+ * только на время своей транзакции. Встроенный open-in-view Spring Boot отключен
+ * (spring.jpa.open-in-view), так как его нельзя ограничить по маршрутам.</p>
+ */
+@Configuration
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    @Value("${root-api-mapping.path}")
+    private String rootApiMappingPath;
+
+    /**
+     * Создает перехватчик, открывающий EntityManager на время запроса.
+     *
+     * @return перехватчик open-in-view
+     */
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        return new OpenEntityManagerInViewInterceptor();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        String apiPrefix = "/" + rootApiMappingPath;
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns("/login", "/register", apiPrefix + "/auth/login", apiPrefix + "/auth/register");
+    }
+
+}
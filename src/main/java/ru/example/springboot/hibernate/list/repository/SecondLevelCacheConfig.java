@@ -0,0 +1,82 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Регионы кэша второго уровня Hibernate (Ehcache через JCache).
+ * Регионы задаются в коде, а не в ehcache.xml: XML-конфигурация Ehcache требует Jakarta JAXB 4,
+ * а в приложении подключен JAXB 2.3 для jjwt.
+ * <p>
+ * Время жизни ограничивает устаревание данных, измененных в обход приложения (свойства second-level-cache.*).</p>
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    /**
+     * Создает менеджер кэшей с регионами задач, пользователей и кэша запросов.
+     *
+     * @param entityTtl     время жизни задач и пользователей
+     * @param queryTtl      время жизни результатов кэшируемых запросов
+     * @param taskEntries   максимальное кол-во задач в кэше
+     * @param userEntries   максимальное кол-во пользователей в кэше
+     * @param queryEntries  максимальное кол-во результатов запросов в кэше
+     * @return              менеджер кэшей JCache
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${second-level-cache.entity-ttl}") Duration entityTtl,
+                                                @Value("${second-level-cache.query-ttl}") Duration queryTtl,
+                                                @Value("${second-level-cache.task-entries}") long taskEntries,
+                                                @Value("${second-level-cache.user-entries}") long userEntries,
+                                                @Value("${second-level-cache.query-entries}") long queryEntries) {
+        ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder()
+                // Задачи: читаются на каждой странице редактирования
+                .addCache("task", region(taskEntries, ExpiryPolicyBuilder.timeToLiveExpiration(entityTtl)))
+                // Пользователи: читаются почти на каждом запросе
+                .addCache("user", region(userEntries, ExpiryPolicyBuilder.timeToLiveExpiration(entityTtl)))
+                // Результаты кэшируемых запросов (findByUsername)
+                .addCache("default-query-results-region",
+                        region(queryEntries, ExpiryPolicyBuilder.timeToLiveExpiration(queryTtl)))
+                // Время последнего изменения таблиц; не должно истекать раньше результатов запросов
+                .addCache("default-update-timestamps-region", region(100, ExpiryPolicyBuilder.noExpiration()));
+        // Свой URI у каждого контекста приложения, чтобы контексты тестов не делили регионы
+        EhcacheCachingProvider provider =
+                (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("urn:second-level-cache:" + UUID.randomUUID()), configuration.build());
+    }
+
+    /**
+     * Передает менеджер кэшей в Hibernate.
+     *
+     * @param secondLevelCacheManager менеджер кэшей
+     * @return                        настройка свойств Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CacheConfiguration<Object, Object> region(long entries, ExpiryPolicy<Object, Object> expiry) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(entries))
+                .withExpiry(expiry)
+                .build();
+    }
+
+}
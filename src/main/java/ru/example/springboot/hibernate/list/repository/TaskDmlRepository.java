@@ -0,0 +1,58 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UpdatedTask;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Изменение и удаление задач пользователя одним запросом, не загружая сущности.
+ * Запросы возвращают прежний статус задач (UPDATE/DELETE ... RETURNING, PostgreSQL),
+ * поэтому слушатели событий получают точное изменение без повторного чтения задач.
+ * <p>
+ * Из кэша второго уровня вытесняются только измененные задачи, а не весь регион task,
+ * как при массовом JPQL UPDATE.</p>
+ */
+public interface TaskDmlRepository {
+
+    /**
+     * Изменяет статус задач пользователя. Задачи других пользователей не изменяются.
+     *
+     * @param status    новый статус
+     * @param ids       идентификаторы задач
+     * @param username  имя пользователя, владельца задач
+     * @param updatedAt время изменения задач
+     * @return          измененные задачи, упорядоченные по id
+     */
+    List<UpdatedTask> updateStatusByIdsAndOwner(TaskStatus status, Collection<Long> ids, String username,
+                                                Instant updatedAt);
+
+    /**
+     * Изменяет статус и, если передано, описание задачи пользователя,
+     * если версия задачи совпадает с ожидаемой.
+     *
+     * @param id            идентификатор задачи
+     * @param description   новое описание, null если описание не меняется
+     * @param status        новый статус
+     * @param username      имя пользователя, владельца задачи
+     * @param version       ожидаемая версия задачи, null если версию проверять не нужно
+     * @param updatedAt     время изменения задачи
+     * @return              измененная задача или пустой optional, если задача не найдена у пользователя
+     *                      или версия не совпала
+     */
+    Optional<UpdatedTask> updateByIdAndOwner(Long id, String description, TaskStatus status, String username,
+                                             Long version, Instant updatedAt);
+
+    /**
+     * Удаляет задачу пользователя.
+     *
+     * @param id        идентификатор задачи
+     * @param username  имя пользователя, владельца задачи
+     * @return          статус удаленной задачи или пустой optional, если задача не найдена у пользователя
+     */
+    Optional<TaskStatus> deleteByIdAndOwner(Long id, String username);
+
+}
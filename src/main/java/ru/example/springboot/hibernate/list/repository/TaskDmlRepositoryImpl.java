@@ -0,0 +1,157 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UpdatedTask;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация {@link TaskDmlRepository} на native-запросах PostgreSQL.
+ * <p>
+ * Запрос с RETURNING Hibernate выполняет как выборку и не сбрасывает кэш второго уровня,
+ * поэтому измененные задачи вытесняются из региона task явно: сразу и после завершения транзакции,
+ * чтобы убрать прежнее состояние, если его успел положить в кэш параллельный читатель.</p>
+ */
+public class TaskDmlRepositoryImpl implements TaskDmlRepository {
+
+    /**
+     * Прежнее состояние строк читается подзапросом FOR UPDATE: он ждет параллельные изменения
+     * и возвращает последнюю зафиксированную версию строки.
+     */
+    private static final String UPDATE_SQL =
+            "update tasks t set %s status = :status, version = t.version + 1, updated_at = :updatedAt " +
+            "from (select p.id, p.status from tasks p " +
+            "where p.id in (:ids) %s " +
+            "and p.username in (select u.id from users u where u.username = :username) " +
+            "order by p.id for update) prev " +
+            "where t.id = prev.id " +
+            "returning t.id as id, t.description as description, t.status as status, " +
+            "t.version as version, prev.status as previous_status";
+
+    private static final String DELETE_SQL =
+            "delete from tasks t " +
+            "where t.id = :id " +
+            "and t.username in (select u.id from users u where u.username = :username) " +
+            "returning t.status as status";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Создает репозиторий.
+     *
+     * @param entityManager используется для native-запросов в текущей транзакции
+     */
+    public TaskDmlRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<UpdatedTask> updateStatusByIdsAndOwner(TaskStatus status, Collection<Long> ids, String username,
+                                                       Instant updatedAt) {
+        return update(null, status, ids, username, null, updatedAt);
+    }
+
+    @Override
+    public Optional<UpdatedTask> updateByIdAndOwner(Long id, String description, TaskStatus status, String username,
+                                                    Long version, Instant updatedAt) {
+        return update(description, status, List.of(id), username, version, updatedAt).stream().findFirst();
+    }
+
+    @Override
+    public Optional<TaskStatus> deleteByIdAndOwner(Long id, String username) {
+
+        NativeQuery<?> delete = entityManager.createNativeQuery(DELETE_SQL).unwrap(NativeQuery.class);
+        delete.setParameter("id", id, StandardBasicTypes.LONG);
+        delete.setParameter("username", username, StandardBasicTypes.STRING);
+        delete.addScalar("status", StandardBasicTypes.STRING);
+
+        Optional<TaskStatus> deleted = delete.getResultList().stream()
+                .map(status -> TaskStatus.valueOf((String) status))
+                .findFirst();
+        if (deleted.isPresent()) {
+            evict(List.of(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Изменяет задачи пользователя одним UPDATE ... RETURNING.
+     *
+     * @param description   новое описание, null если описание не меняется
+     * @param status        новый статус
+     * @param ids           идентификаторы задач
+     * @param username      имя пользователя, владельца задач
+     * @param version       ожидаемая версия задач, null если версию проверять не нужно
+     * @param updatedAt     время изменения задач
+     * @return              измененные задачи, упорядоченные по id
+     */
+    private List<UpdatedTask> update(String description, TaskStatus status, Collection<Long> ids, String username,
+                                     Long version, Instant updatedAt) {
+
+        String sql = UPDATE_SQL.formatted(
+                description == null ? "" : "description = :description,",
+                version == null ? "" : "and p.version = :version");
+
+        NativeQuery<?> update = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        if (description != null) {
+            update.setParameter("description", description, StandardBasicTypes.STRING);
+        }
+        if (version != null) {
+            update.setParameter("version", version, StandardBasicTypes.LONG);
+        }
+        update.setParameter("status", status.name(), StandardBasicTypes.STRING);
+        update.setParameter("updatedAt", updatedAt, StandardBasicTypes.INSTANT);
+        update.setParameterList("ids", ids, StandardBasicTypes.LONG);
+        update.setParameter("username", username, StandardBasicTypes.STRING);
+        update.addScalar("id", StandardBasicTypes.LONG)
+                .addScalar("description", StandardBasicTypes.STRING)
+                .addScalar("status", StandardBasicTypes.STRING)
+                .addScalar("version", StandardBasicTypes.LONG)
+                .addScalar("previous_status", StandardBasicTypes.STRING);
+
+        List<UpdatedTask> updated = update.getResultList().stream()
+                .map(row -> (Object[]) row)
+                .map(row -> new UpdatedTask(
+                        new TaskDto((Long) row[0], (String) row[1], TaskStatus.valueOf((String) row[2]), username,
+                                (Long) row[3]),
+                        TaskStatus.valueOf((String) row[4])))
+                .sorted((first, second) -> Long.compare(first.getTask().getId(), second.getTask().getId()))
+                .toList();
+        if (!updated.isEmpty()) {
+            evict(updated.stream().map(task -> task.getTask().getId()).toList());
+        }
+        return updated;
+    }
+
+    /**
+     * Вытесняет задачи из кэша второго уровня сразу и после завершения текущей транзакции.
+     *
+     * @param ids   идентификаторы задач
+     */
+    private void evict(List<Long> ids) {
+
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        ids.forEach(id -> cache.evict(Task.class, id));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(id -> cache.evict(Task.class, id));
+                }
+            });
+        }
+    }
+
+}
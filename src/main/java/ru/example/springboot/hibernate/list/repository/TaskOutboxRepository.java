@@ -0,0 +1,49 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Репозиторий исходящей очереди событий изменения задач.
+ *
+ * @see TaskOutboxEvent
+ */
+public interface TaskOutboxRepository extends JpaRepository<TaskOutboxEvent, Long> {
+
+    /**
+     * Возвращает самые старые недоставленные события.
+     *
+     * @param limit максимальное кол-во событий
+     * @return      события, упорядоченные по id
+     */
+    @Query("select e from TaskOutboxEvent e order by e.id")
+    List<TaskOutboxEvent> findOldest(Limit limit);
+
+    /**
+     * Удаляет доставленные события одним DELETE.
+     *
+     * @param ids   идентификаторы событий
+     * @return      кол-во удаленных событий
+     */
+    @Modifying
+    @Query("delete from TaskOutboxEvent e where e.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Пытается взять транзакционную advisory-блокировку PostgreSQL.
+     * Блокировка снимается при завершении транзакции.
+     *
+     * @param key   ключ блокировки
+     * @return      true, если блокировка взята, false если ее держит другая транзакция
+     */
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryLock(@Param("key") long key);
+
+}
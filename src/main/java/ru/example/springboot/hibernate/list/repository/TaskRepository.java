@@ -1,16 +1,206 @@
 package ru.example.springboot.hibernate.list.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskDto;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс расширяемый {@code JpaRepository<T, ID>},
  * предоставляет готовые методы для запросов к базе данных.
+ * <p>
+ * Методы, возвращающие {@link TaskDto}, выбирают данные одним запросом с join
+ * по владельцу и не создают сущностей Task и UserEntity.
+ * Изменение и удаление задач пользователя одним запросом - см. {@link TaskDmlRepository}.</p>
  * @see JpaRepository
  */
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskDmlRepository {
 
-    List<Task> findByUserUsername(String username);
+    /** Кол-во строк, которое драйвер JDBC читает из курсора за одно обращение к БД при выгрузке. */
+    int EXPORT_FETCH_SIZE = 500;
+
+    /**
+     * Возвращает все задачи в виде DTO.
+     *
+     * @return  список задач, упорядоченный по id
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t left join t.user u " +
+            "order by t.id")
+    List<TaskDto> findAllProjected();
+
+    /**
+     * Возвращает задачи пользователя в виде DTO.
+     * Результат не хранится в кэше запросов: он сбрасывался бы при любом изменении таблицы tasks,
+     * а изменения {@link TaskDmlRepository} его не сбрасывают. Списки задач кэширует TaskListCache.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @return          список задач, упорядоченный по id
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t join t.user u " +
+            "where u.username = :username " +
+            "order by t.id")
+    List<TaskDto> findByUserUsername(@Param("username") String username);
+
+    /**
+     * Возвращает задачи пользователя в виде потока DTO для выгрузки.
+     * Строки читаются из курсора порциями по {@value #EXPORT_FETCH_SIZE}, DTO не попадают
+     * в контекст персистентности, поэтому расход памяти не зависит от кол-ва задач.
+     * Поток нужно закрыть и читать внутри транзакции.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @return          поток задач, упорядоченный по id
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t join t.user u " +
+            "where u.username = :username " +
+            "order by t.id")
+    Stream<TaskDto> streamByUserUsername(@Param("username") String username);
+
+    /**
+     * Возвращает задачу в виде DTO по идентификатору.
+     *
+     * @param id    идентификатор задачи
+     * @return      optional содержащий задачу
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t left join t.user u " +
+            "where t.id = :id")
+    Optional<TaskDto> findProjectedById(@Param("id") Long id);
+
+    /**
+     * Возвращает версию задачи, не загружая сущность.
+     *
+     * @param id    идентификатор задачи
+     * @return      optional содержащий версию задачи
+     */
+    @Query("select t.version from Task t where t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Возвращает сводную версию страницы задач, следующих за указанным id, в виде
+     * "кол-во задач-сумма версий-максимальный id". Читаются только id и version,
+     * поэтому запрос дешевле выборки самой страницы.
+     *
+     * @param id    id последней задачи предыдущей страницы
+     * @param limit максимальное кол-во задач на странице
+     * @return      сводная версия страницы
+     */
+    @Query(value = "select count(*) || '-' || coalesce(sum(p.version), 0) || '-' || coalesce(max(p.id), 0) " +
+            "from (select t.id, t.version from tasks t where t.id > :id order by t.id limit :limit) p",
+            nativeQuery = true)
+    String findPageVersionAfter(@Param("id") Long id, @Param("limit") int limit);
+
+    /**
+     * Возвращает страницу задач, следующих за указанным id (keyset-пагинация).
+     * Запрос идет по первичному ключу, поэтому время ответа не зависит от глубины страницы.
+     *
+     * @param id    id последней задачи предыдущей страницы
+     * @param limit максимальное кол-во задач на странице
+     * @return      задачи, упорядоченные по id
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t left join t.user u " +
+            "where t.id > :id " +
+            "order by t.id")
+    List<TaskDto> findPageAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * Возвращает страницу задач пользователя, следующих за указанным id (keyset-пагинация).
+     * Запрос идет по индексу (username, id), поэтому время ответа не зависит от кол-ва задач пользователя.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param id        id последней задачи предыдущей страницы
+     * @param limit     максимальное кол-во задач на странице
+     * @return          задачи, упорядоченные по возрастанию id
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t join t.user u " +
+            "where u.username = :username and t.id > :id " +
+            "order by t.id")
+    List<TaskDto> findPageByOwnerAfter(@Param("username") String username, @Param("id") Long id, Limit limit);
+
+    /**
+     * Возвращает страницу задач пользователя, предшествующих указанному id (keyset-пагинация назад).
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param id        id первой задачи следующей страницы
+     * @param limit     максимальное кол-во задач на странице
+     * @return          задачи, упорядоченные по убыванию id
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t join t.user u " +
+            "where u.username = :username and t.id < :id " +
+            "order by t.id desc")
+    List<TaskDto> findPageByOwnerBefore(@Param("username") String username, @Param("id") Long id, Limit limit);
+
+    /**
+     * Возвращает задачи пользователя, измененные позже указанного времени.
+     * Запрос идет по индексу (username, updated_at), поэтому читаются только измененные задачи.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param since     время, после которого задачи должны быть изменены
+     * @param limit     максимальное кол-во задач
+     * @return          задачи, упорядоченные по времени изменения
+     */
+    @Query("select new ru.example.springboot.hibernate.list.model.TaskDto(t.id, t.description, t.status, u.username, t.version) " +
+            "from Task t join t.user u " +
+            "where u.username = :username and t.updatedAt > :since " +
+            "order by t.updatedAt, t.id")
+    List<TaskDto> findChangedByOwnerSince(@Param("username") String username, @Param("since") Instant since, Limit limit);
+
+    /**
+     * Блокирует строки задач до конца текущей транзакции (SELECT ... FOR UPDATE).
+     * Строки блокируются в порядке id, чтобы параллельные блокировки не приводили к взаимной блокировке.
+     *
+     * @param ids   идентификаторы задач
+     * @return      идентификаторы существующих задач
+     */
+    @Query(value = "select t.id from tasks t where t.id in (:ids) order by t.id for update", nativeQuery = true)
+    List<Long> lockByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Возвращает версию задачи пользователя, не загружая сущность.
+     *
+     * @param id        идентификатор задачи
+     * @param username  имя пользователя, владельца задачи
+     * @return          optional содержащий версию задачи
+     */
+    @Query("select t.version from Task t join t.user u where t.id = :id and u.username = :username")
+    Optional<Long> findVersionByIdAndOwner(@Param("id") Long id, @Param("username") String username);
+
+    /**
+     * Возвращает кол-во задач пользователя по статусам.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @return          строки вида [статус, кол-во задач], только для статусов, у которых есть задачи
+     */
+    @Query("select t.status, count(t) from Task t join t.user u where u.username = :username group by t.status")
+    List<Object[]> countByStatusForOwner(@Param("username") String username);
+
+    /**
+     * Возвращает задачу пользователя вместе с владельцем одним запросом.
+     *
+     * @param id        идентификатор задачи
+     * @param username  имя пользователя, владельца задачи
+     * @return          optional содержащий задачу
+     */
+    @Query("select t from Task t join fetch t.user u where t.id = :id and u.username = :username")
+    Optional<Task> findByIdAndOwner(@Param("id") Long id, @Param("username") String username);
 }
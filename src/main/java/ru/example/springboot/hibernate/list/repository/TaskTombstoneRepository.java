@@ -0,0 +1,44 @@
+package ru.example.springboot.hibernate.list.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.example.springboot.hibernate.list.model.TaskTombstone;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Репозиторий записей об удаленных задачах.
+ *
+ * @see TaskTombstone
+ */
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    /**
+     * Возвращает идентификаторы задач пользователя, удаленных позже указанного времени.
+     * Запрос идет по индексу (username, deleted_at).
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param since     время, после которого задачи должны быть удалены
+     * @param limit     максимальное кол-во идентификаторов
+     * @return          идентификаторы задач, упорядоченные по времени удаления
+     */
+    @Query("select t.taskId from TaskTombstone t " +
+            "where t.username = :username and t.deletedAt > :since " +
+            "order by t.deletedAt, t.taskId")
+    List<Long> findTaskIdsDeletedSince(@Param("username") String username, @Param("since") Instant since, Limit limit);
+
+    /**
+     * Удаляет записи об удалениях старше указанного времени одним DELETE.
+     *
+     * @param before    время, раньше которого записи удаляются
+     * @return          кол-во удаленных записей
+     */
+    @Modifying
+    @Query("delete from TaskTombstone t where t.deletedAt < :before")
+    int deleteDeletedBefore(@Param("before") Instant before);
+
+}
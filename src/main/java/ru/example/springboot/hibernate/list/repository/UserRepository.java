@@ -1,6 +1,9 @@
 package ru.example.springboot.hibernate.list.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.example.springboot.hibernate.list.model.UserEntity;
 
 import java.util.Optional;
@@ -14,9 +17,11 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
     /**
      * Возвращает объект User по имени.
+     * Результат хранится в кэше запросов и сбрасывается при любом изменении таблицы users.
      *
      * @param username  имя пользователя
      * @return          optional содержащий данные пользователя
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<UserEntity> findByUsername(String username);
 }
@@ -0,0 +1,150 @@
+package ru.example.springboot.hibernate.list.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.example.springboot.hibernate.list.model.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обертка над PasswordEncoder, которая выполняет хеширование и проверку паролей
+ * в отдельном пуле потоков ограниченного размера с ограниченной очередью.
+ * <p>
+ * Хеширование пароля намеренно дорогое, поэтому волна входов не должна занимать все потоки Tomcat.
+ * Одновременно хешированием заняты не более threads + queueCapacity потоков запросов,
+ * остальные запросы сразу получают ServiceUnavailableException (503 с заголовком Retry-After).
+ * Timeout ограничивает общее время ожидания результата - в очереди и при выполнении: если результат
+ * не получен за timeout, задача отменяется с тем же исключением.</p>
+ * <p>
+ * Метрики: {@code password.hashing} (время операции с тегом operation),
+ * {@code password.hashing.queue} (глубина очереди), {@code password.hashing.rejected} (кол-во отказов).</p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * Создает обертку и регистрирует ее метрики.
+     *
+     * @param delegate          исходный PasswordEncoder
+     * @param threads           кол-во потоков хеширования
+     * @param queueCapacity     максимальная длина очереди
+     * @param timeout           максимальное время ожидания результата, включая очередь и выполнение
+     * @param meterRegistry     реестр метрик
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  Duration timeout, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutNanos = timeout.toNanos();
+        this.retryAfterSeconds = Math.max(1, timeout.toSeconds());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Выполняет операцию в пуле хеширования и ждет ее результат.
+     * Таймер учитывает только время самого хеширования, без ожидания в очереди.
+     *
+     * @param timer     таймер операции
+     * @param operation операция хеширования
+     * @param <T>       тип результата
+     * @return          результат операции
+     */
+    private <T> T execute(Timer timer, Callable<T> operation) {
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return operation.call();
+                } finally {
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Создает исключение об отказе и учитывает его в метрике.
+     *
+     * @return исключение ServiceUnavailableException
+     */
+    private ServiceUnavailableException overloaded() {
+        rejectedCounter.increment();
+        return new ServiceUnavailableException("Сервис аутентификации перегружен, повторите запрос позже.", retryAfterSeconds);
+    }
+
+}
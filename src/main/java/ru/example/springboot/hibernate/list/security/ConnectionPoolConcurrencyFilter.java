@@ -0,0 +1,97 @@
+package ru.example.springboot.hibernate.list.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает кол-во одновременно обрабатываемых запросов размером пула соединений с БД.
+ * <p>
+ * С виртуальными потоками Tomcat больше не ограничивает параллелизм, и тысячи запросов
+ * одновременно встают в очередь за соединением Hikari, пока не истечет connection-timeout.
+ * Фильтр держит лишние запросы перед цепочкой фильтров и, если разрешение не получено
+ * за acquire-timeout, сразу отвечает 503 с заголовком Retry-After.
+ * Включается вместе с виртуальными потоками (spring.threads.virtual.enabled).</p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ConnectionPoolConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final String STATIC_PREFIXES_REGEX = "^/(static|css|js|images)/.*|^/favicon\\.ico$";
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final long retryAfterSeconds;
+
+    /**
+     * Создает фильтр.
+     *
+     * @param maxConcurrentRequests максимальное кол-во одновременно обрабатываемых запросов,
+     *                              по умолчанию равно размеру пула соединений
+     * @param acquireTimeout        максимальное время ожидания разрешения
+     */
+    public ConnectionPoolConcurrencyFilter(
+            @Value("${virtual-threads.max-concurrent-requests:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrentRequests,
+            @Value("${virtual-threads.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.retryAfterSeconds = Math.max(1, acquireTimeout.toSeconds());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length()).matches(STATIC_PREFIXES_REGEX);
+    }
+
+    /**
+     * Пропускает запрос дальше по цепочке, если удалось получить разрешение, иначе отвечает 503.
+     *
+     * @param request           входящий HTTP-запрос
+     * @param response          HTTP-ответ
+     * @param filterChain       цепочка фильтров для передачи управления следующему фильтру
+     * @throws ServletException если возникает ошибка, специфичная для сервлета
+     * @throws IOException      если во время обработки произошла ошибка ввода-вывода
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"errorCode\":\"SERVICE_UNAVAILABLE\",\"message\":\"Сервер перегружен, повторите запрос позже.\"}");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.example.springboot.hibernate.list.security;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import ru.example.springboot.hibernate.list.model.exception.ServiceUnavailableException;
+
+import java.io.IOException;
+
+/**
+ * Обрабатывает ошибку входа через форму.
+ * <p>
+ * Spring Security оборачивает исключения UserDetailsService и PasswordEncoder в
+ * InternalAuthenticationServiceException, поэтому перегрузка пула хеширования паролей
+ * ({@link ServiceUnavailableException}) без этого обработчика выглядела бы как неверный пароль.
+ * Для нее отвечает 503 с заголовком Retry-After и страницей ошибки, иначе перенаправляет на страницу входа.</p>
+ */
+public class FormLoginFailureHandler extends SimpleUrlAuthenticationFailureHandler {
+
+    /** Атрибут запроса с текстом ошибки, который выводит шаблон error. */
+    static final String ERROR_MESSAGE_ATTRIBUTE = "errorMessage";
+
+    /**
+     * Создает обработчик.
+     *
+     * @param failureUrl    страница, на которую перенаправляется неудачный вход
+     */
+    public FormLoginFailureHandler(String failureUrl) {
+        super(failureUrl);
+    }
+
+    /**
+     * Отвечает 503, если аутентификация отклонена из-за перегрузки, иначе перенаправляет на страницу входа.
+     *
+     * @param request           входящий HTTP-запрос
+     * @param response          HTTP-ответ
+     * @param exception         исключение аутентификации
+     * @throws ServletException если возникает ошибка, специфичная для сервлета
+     * @throws IOException      если во время обработки произошла ошибка ввода-вывода
+     */
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException, ServletException {
+
+        if (exception.getCause() instanceof ServiceUnavailableException unavailable) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(unavailable.getRetryAfterSeconds()));
+            request.setAttribute(ERROR_MESSAGE_ATTRIBUTE, unavailable.getMessage());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), unavailable.getMessage());
+            return;
+        }
+
+        super.onAuthenticationFailure(request, response, exception);
+    }
+
+}
@@ -1,11 +1,11 @@
 package ru.example.springboot.hibernate.list.security;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
+import org.slf4j.MDC;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,17 +14,23 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.VerifiedToken;
 import ru.example.springboot.hibernate.list.service.UserService;
 import ru.example.springboot.hibernate.list.util.JwtUtil;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * Фильтр, отвечающий за проверку JWT во входящих HTTP-запросах.
  * Если найден действительный токен, соответствующая аутентификация пользователя
  * устанавливается в SecurityContext.
+ * <p>
+ * Также присваивает запросу идентификатор корреляции: берет его из заголовка X-Request-Id
+ * или генерирует новый, кладет в MDC (ключ requestId) на время обработки и возвращает в ответе.</p>
  */
 @Component
 @AllArgsConstructor
@@ -32,6 +38,10 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private static final String BEARER_PREFIX = "Bearer ";
 
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
     private JwtUtil jwtUtil;
     private UserService userService;
 
@@ -49,28 +59,48 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+
+        try {
+            authenticate(request);
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(REQUEST_ID_MDC_KEY);
+        }
+    }
+
+    /**
+     * Проверяет токен из заголовка авторизации и, если он действителен,
+     * устанавливает аутентификацию в контексте безопасности.
+     *
+     * @param request   входящий HTTP-запрос
+     */
+    private void authenticate(HttpServletRequest request) {
+
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String token = null;
+        VerifiedToken verifiedToken = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)) {
-            token = authorizationHeader.substring(BEARER_PREFIX.length());
-            username = jwtUtil.extractUsername(token);
+            verifiedToken = jwtUtil.verify(authorizationHeader.substring(BEARER_PREFIX.length()));
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Optional<UserEntity> optionalUser = this.userService.getUserByUsername(username);
+        if (verifiedToken != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = verifiedToken.getUsername();
+            Optional<UserEntity> optionalUser = this.userService.getPrincipalByUsername(username);
             if (optionalUser.isEmpty()) {
                 throw new UsernameNotFoundException(String.format("Пользователь '%s' не найден", username));
             }
 
             UserEntity userEntity = optionalUser.get();
 
-            if (jwtUtil.validateToken(token, userEntity)) {
-                Claims claims = jwtUtil.extractAllClaims(token);
-                String role = claims.get("role", String.class);
-                List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(role));
+            if (userEntity.isEnabled()) {
+                List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(verifiedToken.getRole()));
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userEntity, null, authorities);
@@ -81,7 +111,5 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         .setAuthentication(usernamePasswordAuthenticationToken);
             }
         }
-
-        filterChain.doFilter(request, response);
     }
 }
@@ -0,0 +1,102 @@
+package ru.example.springboot.hibernate.list.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.security.TokenBucketRateLimiter.RouteGroup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает частоту запросов к API для каждого клиента, см. {@link TokenBucketRateLimiter}.
+ * <p>
+ * Стоит в цепочке фильтров API сразу после {@link JwtRequestFilter}: аутентифицированный запрос
+ * списывается из корзины пользователя (субъект JWT), остальные - из корзины IP-адреса.
+ * При исчерпании корзины отвечает 429 с заголовком Retry-After.
+ * Не регистрируется как бин, чтобы не попасть в цепочку фильтров сервлета для всех запросов.</p>
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final String authPrefix;
+    private final String adminPrefix;
+
+    /**
+     * Создает фильтр.
+     *
+     * @param rateLimiter           ограничитель частоты запросов
+     * @param rootApiMappingPath    корневой путь API, например api/v1
+     */
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter, String rootApiMappingPath) {
+        this.rateLimiter = rateLimiter;
+        String apiPrefix = "/" + StringUtils.trimLeadingCharacter(rootApiMappingPath, '/');
+        this.authPrefix = apiPrefix + "/auth/";
+        this.adminPrefix = apiPrefix + "/auth/users";
+    }
+
+    /**
+     * Пропускает запрос дальше по цепочке, если в корзине клиента есть запрос, иначе отвечает 429.
+     *
+     * @param request           входящий HTTP-запрос
+     * @param response          HTTP-ответ
+     * @param filterChain       цепочка фильтров для передачи управления следующему фильтру
+     * @throws ServletException если возникает ошибка, специфичная для сервлета
+     * @throws IOException      если во время обработки произошла ошибка ввода-вывода
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        long waitNanos = rateLimiter.tryAcquire(routeGroup(request), client(request));
+
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"errorCode\":\"TOO_MANY_REQUESTS\",\"message\":\"Слишком много запросов, повторите запрос позже.\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Определяет группу маршрутов запроса.
+     *
+     * @param request   входящий HTTP-запрос
+     * @return          ADMIN для управления пользователями, AUTH для остальных методов /auth, иначе TASKS
+     */
+    private RouteGroup routeGroup(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith(adminPrefix)) {
+            return RouteGroup.ADMIN;
+        }
+        return path.startsWith(authPrefix) ? RouteGroup.AUTH : RouteGroup.TASKS;
+    }
+
+    /**
+     * Возвращает ключ клиента: имя аутентифицированного пользователя или IP-адрес.
+     *
+     * @param request   входящий HTTP-запрос
+     * @return          ключ корзины клиента
+     */
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserEntity user) {
+            return "user:" + user.getUsername();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.example.springboot.hibernate.list.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -24,6 +25,7 @@ public class SecurityConfig {
 
     private final UserService userService;
     private final JwtUtil jwtUtil;
+    private final TokenBucketRateLimiter rateLimiter;
 
     @Value("${root-api-mapping.path}")
     private String rootApiMappingPath;
@@ -62,6 +64,8 @@ public class SecurityConfig {
                 .securityMatcher(rootApiMappingPath + "/**")
                 .authorizeHttpRequests(auth ->
                         auth
+                                // завершение асинхронных ответов (SSE) запрос уже прошел проверку
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers(publicRoutes).permitAll()
                                 .requestMatchers(routsAdminOnly).hasAuthority("ADMIN")//.hasRole("ADMIN")
                                 .anyRequest().authenticated()
@@ -70,6 +74,8 @@ public class SecurityConfig {
                             sessionManagement
                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtRequestFilter(), UsernamePasswordAuthenticationFilter.class)
+                // ограничение частоты запросов после JWT, чтобы считать запросы по пользователю
+                .addFilterAfter(new RateLimitFilter(rateLimiter, rootApiMappingPath), JwtRequestFilter.class)
                 .build();
     }
 
@@ -92,6 +98,8 @@ public class SecurityConfig {
         return http
                 .authorizeHttpRequests(auth ->
                     auth
+                            // страница ошибки, например 503 при перегрузке входа, доступна без аутентификации
+                            .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                             .requestMatchers(HttpMethod.OPTIONS).permitAll()
                             .requestMatchers(publicRoutes).permitAll()
                             .requestMatchers(staticRoutes).permitAll()
@@ -102,7 +110,7 @@ public class SecurityConfig {
                                 .loginPage("/login")
                                 .loginProcessingUrl("/login") // куда будет направлен запрос для проверки пользователя
                                 .defaultSuccessUrl("/index")
-                                .failureUrl("/login?error=true")
+                                .failureHandler(new FormLoginFailureHandler("/login?error=true"))
                                 .permitAll()
                 )
                 .logout(logout ->
@@ -0,0 +1,186 @@
+package ru.example.springboot.hibernate.list.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничитель частоты запросов по алгоритму token bucket, отдельный для каждого клиента и группы маршрутов.
+ * <p>
+ * Корзина группы вмещает {@code capacity} запросов и пополняется со скоростью {@code refill-per-second}.
+ * Состояние корзины - одно число: время, к которому корзина снова станет полной за вычетом
+ * допустимого всплеска (GCRA), поэтому запрос списывается одной операцией CAS без блокировок.</p>
+ * <p>
+ * Кол-во корзин ограничено {@code rate-limit.max-buckets}: клиенты сверх лимита делят {@value #OVERFLOW_BUCKETS}
+ * общих корзин группы, выбираемых по хэшу ключа клиента, поэтому один активный клиент не блокирует остальных.
+ * Корзины, которые полны дольше {@code rate-limit.idle-timeout}, удаляются в фоне - новая корзина
+ * создается полной, поэтому удаление не меняет поведения для клиента.</p>
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    /** Кол-во общих корзин группы для клиентов сверх rate-limit.max-buckets, степень двойки. */
+    static final int OVERFLOW_BUCKETS = 1024;
+
+    /**
+     * Группы маршрутов API с отдельными лимитами.
+     */
+    public enum RouteGroup {
+        AUTH,
+        ADMIN,
+        TASKS
+    }
+
+    private final boolean enabled;
+    private final int maxBuckets;
+    private final long idleTimeoutNanos;
+    private final Map<RouteGroup, Limit> limits = new EnumMap<>(RouteGroup.class);
+    private final Map<RouteGroup, Bucket[]> overflowBuckets = new EnumMap<>(RouteGroup.class);
+    private final Map<RouteGroup, Counter> rejectedCounters = new EnumMap<>(RouteGroup.class);
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Создает ограничитель и регистрирует его метрики.
+     *
+     * @param enabled               включено ли ограничение
+     * @param maxBuckets            максимальное кол-во корзин клиентов
+     * @param idleTimeout           через сколько после заполнения корзина удаляется
+     * @param authCapacity          емкость корзины для входа и регистрации
+     * @param authRefillPerSecond   пополнение корзины для входа и регистрации, запросов в секунду
+     * @param adminCapacity         емкость корзины для управления пользователями
+     * @param adminRefillPerSecond  пополнение корзины для управления пользователями, запросов в секунду
+     * @param tasksCapacity         емкость корзины для остальных методов API
+     * @param tasksRefillPerSecond  пополнение корзины для остальных методов API, запросов в секунду
+     * @param meterRegistry         реестр метрик
+     */
+    public TokenBucketRateLimiter(@Value("${rate-limit.enabled}") boolean enabled,
+                                  @Value("${rate-limit.max-buckets}") int maxBuckets,
+                                  @Value("${rate-limit.idle-timeout}") Duration idleTimeout,
+                                  @Value("${rate-limit.auth.capacity}") int authCapacity,
+                                  @Value("${rate-limit.auth.refill-per-second}") double authRefillPerSecond,
+                                  @Value("${rate-limit.admin.capacity}") int adminCapacity,
+                                  @Value("${rate-limit.admin.refill-per-second}") double adminRefillPerSecond,
+                                  @Value("${rate-limit.tasks.capacity}") int tasksCapacity,
+                                  @Value("${rate-limit.tasks.refill-per-second}") double tasksRefillPerSecond,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxBuckets = maxBuckets;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+
+        limits.put(RouteGroup.AUTH, new Limit(authCapacity, authRefillPerSecond));
+        limits.put(RouteGroup.ADMIN, new Limit(adminCapacity, adminRefillPerSecond));
+        limits.put(RouteGroup.TASKS, new Limit(tasksCapacity, tasksRefillPerSecond));
+        long now = System.nanoTime();
+        for (RouteGroup group : RouteGroup.values()) {
+            Bucket[] overflow = new Bucket[OVERFLOW_BUCKETS];
+            for (int i = 0; i < overflow.length; i++) {
+                overflow[i] = new Bucket(now);
+            }
+            overflowBuckets.put(group, overflow);
+            rejectedCounters.put(group,
+                    meterRegistry.counter("rate.limit.rejected", "group", group.name().toLowerCase(Locale.ROOT)));
+        }
+
+        Gauge.builder("rate.limit.buckets", buckets, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Списывает запрос из корзины клиента.
+     *
+     * @param group     группа маршрутов запроса
+     * @param client    ключ клиента: имя пользователя или IP-адрес
+     * @return          0, если запрос разрешен, иначе сколько наносекунд ждать до следующего разрешенного запроса
+     */
+    public long tryAcquire(RouteGroup group, String client) {
+
+        if (!enabled) {
+            return 0;
+        }
+
+        Limit limit = limits.get(group);
+        long now = System.nanoTime();
+        Bucket bucket = bucket(group, client, now);
+
+        while (true) {
+            long fullAt = bucket.fullAt.get();
+            long start = fullAt - now > 0 ? fullAt : now;
+            long wait = start - now - limit.burstNanos();
+            if (wait > 0) {
+                rejectedCounters.get(group).increment();
+                return wait;
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, start + limit.intervalNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Удаляет корзины, которые полны дольше idle-timeout.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.idle-timeout}", initialDelayString = "${rate-limit.idle-timeout}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeoutNanos;
+        buckets.values().removeIf(bucket -> bucket.fullAt.get() - cutoff < 0);
+    }
+
+    /**
+     * Возвращает корзину клиента, создавая ее при первом запросе.
+     * Если корзин уже максимальное кол-во, возвращает общую корзину группы по хэшу ключа клиента.
+     *
+     * @param group     группа маршрутов
+     * @param client    ключ клиента
+     * @param now       текущее время, нс
+     * @return          корзина клиента
+     */
+    private Bucket bucket(RouteGroup group, String client, long now) {
+
+        String key = group.name() + ':' + client;
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            int hash = client.hashCode();
+            return overflowBuckets.get(group)[(hash ^ (hash >>> 16)) & (OVERFLOW_BUCKETS - 1)];
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+
+    /**
+     * Лимит группы маршрутов в терминах GCRA.
+     *
+     * @param intervalNanos интервал пополнения одного запроса, нс
+     * @param burstNanos    допустимый всплеск: на сколько время заполнения корзины может опережать текущее, нс
+     */
+    private record Limit(long intervalNanos, long burstNanos) {
+
+        Limit(int capacity, double refillPerSecond) {
+            this((long) (1_000_000_000L / refillPerSecond),
+                    (long) (1_000_000_000L / refillPerSecond) * (capacity - 1));
+        }
+    }
+
+    /**
+     * Корзина клиента. Хранит время, к которому корзина станет полной, по System.nanoTime().
+     */
+    private static final class Bucket {
+
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+    }
+
+}
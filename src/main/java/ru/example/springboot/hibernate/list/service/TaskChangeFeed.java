@@ -0,0 +1,361 @@
+package ru.example.springboot.hibernate.list.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лента изменений задач пользователей для Server-Sent Events.
+ * <p>
+ * События {@link TaskChangedEvent} после фиксации транзакции рассылаются всем подключениям владельца задачи.
+ * У каждого события есть идентификатор вида {@code <эпоха>-<номер>}: номер растет отдельно для каждого
+ * пользователя, эпоха меняется при перезапуске приложения. Последние события пользователя хранятся
+ * в кольцевом буфере, поэтому клиент, переподключившийся с заголовком Last-Event-ID, получает пропущенные события.
+ * Если пропущенных событий в буфере уже нет, клиент получает событие resync и должен перечитать список задач.</p>
+ * <p>
+ * У каждого подключения своя ограниченная очередь. Если клиент не успевает читать и очередь заполняется,
+ * она очищается и в нее кладется событие resync. Отправка выполняется виртуальными потоками только
+ * при наличии событий, поэтому простаивающее подключение не занимает поток.</p>
+ */
+@Component
+public class TaskChangeFeed implements DisposableBean {
+
+    /** Имя события, после которого клиент должен перечитать список задач. */
+    public static final String RESYNC_EVENT = "resync";
+
+    /** Эпоха событий, отличает идентификаторы событий разных запусков приложения. */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, OwnerFeed> feeds = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter resyncCounter;
+
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int historySize;
+    private final long retentionMillis;
+
+    /**
+     * Создает ленту изменений и регистрирует ее метрики.
+     *
+     * @param timeout       время жизни подключения, после которого клиент переподключается
+     * @param bufferSize    максимальная длина очереди подключения
+     * @param historySize   кол-во последних событий пользователя, доступных для Last-Event-ID
+     * @param retention     сколько хранить события пользователя после отключения последнего клиента
+     * @param meterRegistry реестр метрик
+     */
+    public TaskChangeFeed(@Value("${task-stream.timeout}") Duration timeout,
+                          @Value("${task-stream.buffer-size}") int bufferSize,
+                          @Value("${task-stream.history-size}") int historySize,
+                          @Value("${task-stream.retention}") Duration retention,
+                          MeterRegistry meterRegistry) {
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.historySize = historySize;
+        this.retentionMillis = retention.toMillis();
+
+        Gauge.builder("tasks.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        this.resyncCounter = Counter.builder("tasks.stream.resyncs").register(meterRegistry);
+    }
+
+    /**
+     * Подключает клиента к ленте изменений задач пользователя.
+     *
+     * @param owner         имя пользователя, владельца задач
+     * @param lastEventId   идентификатор последнего полученного события или null
+     * @return              SseEmitter подключения
+     */
+    public SseEmitter subscribe(String owner, String lastEventId) {
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), bufferSize);
+
+        feeds.compute(owner, (key, feed) -> {
+            OwnerFeed ownerFeed = feed == null ? new OwnerFeed() : feed;
+            synchronized (ownerFeed) {
+                enqueue(subscriber, SseEmitter.event().comment("connected"), ownerFeed.sequence);
+                if (lastEventId != null) {
+                    replay(ownerFeed, subscriber, lastEventId);
+                }
+                ownerFeed.subscribers.add(subscriber);
+            }
+            return ownerFeed;
+        });
+        subscriberCount.incrementAndGet();
+
+        Runnable unsubscribe = () -> unsubscribe(owner, subscriber);
+        subscriber.emitter.onCompletion(unsubscribe);
+        subscriber.emitter.onTimeout(unsubscribe);
+        subscriber.emitter.onError(error -> unsubscribe.run());
+
+        return subscriber.emitter;
+    }
+
+    /**
+     * Рассылает событие подключениям владельца задачи после фиксации транзакции.
+     *
+     * @param event событие изменения задачи
+     */
+    @TransactionalEventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+
+        if (event.getOwner() == null) {
+            return;
+        }
+
+        OwnerFeed feed = feeds.get(event.getOwner());
+        if (feed == null) {
+            return;
+        }
+
+        synchronized (feed) {
+            long sequence = ++feed.sequence;
+            feed.history.add(new HistoryEntry(sequence, event));
+            if (feed.history.size() > historySize) {
+                feed.history.poll();
+            }
+            for (Subscriber subscriber : feed.subscribers) {
+                enqueue(subscriber, toSseEvent(sequence, event), sequence);
+            }
+        }
+    }
+
+    /**
+     * Периодически отправляет комментарий всем подключениям, чтобы прокси не закрывали простаивающие
+     * соединения, а разорванные соединения обнаруживались. Заодно удаляет историю пользователей,
+     * у которых давно нет подключений.
+     */
+    @Scheduled(fixedDelayString = "${task-stream.heartbeat-interval}", initialDelayString = "${task-stream.heartbeat-interval}")
+    public void heartbeat() {
+
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+
+        for (String owner : feeds.keySet()) {
+            feeds.computeIfPresent(owner, (key, feed) -> {
+                synchronized (feed) {
+                    if (feed.subscribers.isEmpty()) {
+                        return feed.idleSince < expiredBefore ? null : feed;
+                    }
+                    for (Subscriber subscriber : feed.subscribers) {
+                        enqueue(subscriber, SseEmitter.event().comment("heartbeat"), feed.sequence);
+                    }
+                    return feed;
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        feeds.values().forEach(feed -> feed.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    /**
+     * Кладет в очередь подключения события, пропущенные клиентом, или событие resync,
+     * если пропущенных событий уже нет в истории.
+     *
+     * @param feed          лента пользователя
+     * @param subscriber    подключение
+     * @param lastEventId   идентификатор последнего полученного клиентом события
+     */
+    private void replay(OwnerFeed feed, Subscriber subscriber, String lastEventId) {
+
+        long lastSequence = parseSequence(lastEventId);
+        HistoryEntry oldest = feed.history.peek();
+        long oldestAvailable = oldest == null ? feed.sequence + 1 : oldest.sequence;
+
+        if (lastSequence < 0 || lastSequence > feed.sequence || lastSequence + 1 < oldestAvailable) {
+            enqueueResync(subscriber, feed.sequence);
+            return;
+        }
+
+        for (HistoryEntry entry : feed.history) {
+            if (entry.sequence > lastSequence) {
+                enqueue(subscriber, toSseEvent(entry.sequence, entry.event), feed.sequence);
+            }
+        }
+    }
+
+    /**
+     * Возвращает номер события из его идентификатора.
+     *
+     * @param eventId   идентификатор события
+     * @return          номер события или -1, если идентификатор из другой эпохи или некорректен
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.indexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Кладет событие в очередь подключения и запускает отправку.
+     * Если очередь заполнена, она очищается и в нее кладется событие resync.
+     *
+     * @param subscriber    подключение
+     * @param event         событие
+     * @param sequence      номер последнего события пользователя, с него клиент продолжит после resync
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event, long sequence) {
+        synchronized (subscriber) {
+            if (!subscriber.queue.offer(event)) {
+                subscriber.queue.clear();
+                enqueueResync(subscriber, sequence);
+                return;
+            }
+        }
+        scheduleSend(subscriber);
+    }
+
+    /**
+     * Кладет в очередь подключения событие resync. Идентификатор события указывает на последнее событие
+     * пользователя, поэтому после перечитывания списка клиент продолжает получать только новые события.
+     *
+     * @param subscriber    подключение
+     * @param sequence      номер последнего события пользователя
+     */
+    private void enqueueResync(Subscriber subscriber, long sequence) {
+        resyncCounter.increment();
+        synchronized (subscriber) {
+            subscriber.queue.offer(SseEmitter.event().id(epoch + "-" + sequence).name(RESYNC_EVENT).data(""));
+        }
+        scheduleSend(subscriber);
+    }
+
+    /**
+     * Запускает отправку очереди подключения, если она еще не запущена.
+     *
+     * @param subscriber    подключение
+     */
+    private void scheduleSend(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    /**
+     * Отправляет клиенту все события из очереди подключения.
+     * При ошибке записи подключение закрывается.
+     *
+     * @param subscriber    подключение
+     */
+    private void send(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscriber.queue.clear();
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+
+        // событие могло прийти после последнего poll, но до сброса флага
+        if (!subscriber.queue.isEmpty()) {
+            scheduleSend(subscriber);
+        }
+    }
+
+    /**
+     * Отключает клиента от ленты пользователя.
+     *
+     * @param owner         имя пользователя
+     * @param subscriber    подключение
+     */
+    private void unsubscribe(String owner, Subscriber subscriber) {
+        OwnerFeed feed = feeds.get(owner);
+        if (feed == null) {
+            return;
+        }
+        synchronized (feed) {
+            if (feed.subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+                if (feed.subscribers.isEmpty()) {
+                    feed.idleSince = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    /**
+     * Преобразует событие изменения задачи в событие SSE.
+     *
+     * @param sequence  номер события пользователя
+     * @param event     событие изменения задачи
+     * @return          событие SSE с идентификатором, именем (created, updated, deleted) и данными в JSON
+     */
+    private SseEmitter.SseEventBuilder toSseEvent(long sequence, TaskChangedEvent event) {
+        return SseEmitter.event()
+                .id(epoch + "-" + sequence)
+                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                .data(event);
+    }
+
+    /**
+     * Лента одного пользователя: номер последнего события, история и подключения.
+     * Все поля изменяются под монитором объекта.
+     */
+    private static final class OwnerFeed {
+        private long sequence;
+        private long idleSince = System.currentTimeMillis();
+        private final Queue<HistoryEntry> history = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Подключение клиента: SseEmitter, ограниченная очередь событий
+     * и признак того, что виртуальный поток уже отправляет очередь.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    /**
+     * Событие в истории пользователя.
+     *
+     * @param sequence  номер события пользователя
+     * @param event     событие изменения задачи
+     */
+    private record HistoryEntry(long sequence, TaskChangedEvent event) {
+    }
+
+}
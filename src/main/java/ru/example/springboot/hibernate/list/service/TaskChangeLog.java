@@ -0,0 +1,153 @@
+package ru.example.springboot.hibernate.list.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.example.springboot.hibernate.list.model.TaskChanges;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskTombstone;
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.repository.TaskTombstoneRepository;
+import ru.example.springboot.hibernate.list.util.TaskCursor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Журнал изменений задач для клиентов, синхронизирующих задачи по изменениям (например, офлайн-клиентов).
+ * <p>
+ * Созданные и измененные задачи выбираются по времени изменения {@code Task.updatedAt},
+ * удаленные - по записям {@link TaskTombstone}, которые пишет {@link TaskService#deleteById}.
+ * Время изменения выставляется до фиксации транзакции, поэтому задача, измененная в долгой транзакции
+ * или после ожидания блокировки, может стать видна позже, чем задачи с более поздним временем.
+ * Чтобы не пропустить такие изменения, курсор следующей синхронизации не заходит за начало самой старой
+ * незавершенной транзакции в БД (pg_stat_activity): все, что изменено раньше, уже зафиксировано и видно.
+ * Дополнительно курсор отстает на {@code task-changes.commit-lag}, что покрывает расхождение часов
+ * приложения и БД. Клиент может получить задачу повторно и должен применять изменения по id и версии.
+ * Долгая транзакция, в том числе чужая, задерживает курсор, пока не завершится.</p>
+ * <p>
+ * Записи об удалениях старше {@code task-changes.tombstone-retention} удаляются в фоне.
+ * Клиент с более старым курсором получает ответ с флагом resync и перечитывает список задач целиком.</p>
+ */
+@Slf4j
+@Component
+public class TaskChangeLog {
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final EntityManager entityManager;
+
+    /** Начало самой старой незавершенной транзакции клиентов БД, null если таких нет. */
+    private static final String OLDEST_TRANSACTION_SQL =
+            "select min(a.xact_start) as xact_start from pg_stat_activity a " +
+            "where a.datname = current_database() and a.backend_type = 'client backend'";
+
+    private final int maxItems;
+    private final Duration commitLag;
+    private final Duration tombstoneRetention;
+
+    /**
+     * Создает журнал изменений задач.
+     *
+     * @param taskRepository        репозиторий задач
+     * @param tombstoneRepository   репозиторий записей об удаленных задачах
+     * @param entityManager         используется для вставки записей об удалении без предварительного SELECT
+     *                              и для чтения начала самой старой транзакции
+     * @param maxItems              максимальное кол-во изменений в ответе, при превышении клиент перечитывает список
+     * @param commitLag             на сколько курсор следующей синхронизации отстает от начала самой старой транзакции
+     * @param tombstoneRetention    сколько хранить записи об удаленных задачах
+     */
+    public TaskChangeLog(TaskRepository taskRepository,
+                         TaskTombstoneRepository tombstoneRepository,
+                         EntityManager entityManager,
+                         @Value("${task-changes.max-items}") int maxItems,
+                         @Value("${task-changes.commit-lag}") Duration commitLag,
+                         @Value("${task-changes.tombstone-retention}") Duration tombstoneRetention) {
+        this.taskRepository = taskRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.entityManager = entityManager;
+        this.maxItems = maxItems;
+        this.commitLag = commitLag;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * Записывает удаление задачи. Вызывается в транзакции удаления,
+     * поэтому запись фиксируется вместе с удалением задачи.
+     *
+     * @param taskId    идентификатор удаленной задачи
+     * @param owner     имя пользователя, владельца задачи
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletion(Long taskId, String owner) {
+        entityManager.persist(new TaskTombstone(taskId, owner, Instant.now()));
+    }
+
+    /**
+     * Возвращает изменения задач пользователя, произошедшие после курсора.
+     * Только для транзакций чтения.
+     *
+     * @param owner     имя пользователя, владельца задач
+     * @param cursor    курсор из предыдущего ответа, пустой для первой синхронизации
+     * @return          измененные и удаленные задачи или ответ с флагом resync
+     * @throws BadRequestException если курсор поврежден
+     */
+    @Transactional(readOnly = true)
+    public TaskChanges findChangesSince(String owner, String cursor) throws BadRequestException {
+
+        Instant now = Instant.now();
+        Instant since = TaskCursor.decodeTime(cursor);
+        // граница вычисляется до выборки изменений: транзакции, начатые раньше нее, видны выборке
+        Instant next = oldestTransactionStart(now).minus(commitLag);
+
+        if (since == null || since.isBefore(now.minus(tombstoneRetention))) {
+            return TaskChanges.resync(TaskCursor.encodeTime(next));
+        }
+
+        List<TaskDto> items = taskRepository.findChangedByOwnerSince(owner, since, Limit.of(maxItems + 1));
+        List<Long> deleted = tombstoneRepository.findTaskIdsDeletedSince(owner, since, Limit.of(maxItems + 1));
+
+        if (items.size() + deleted.size() > maxItems) {
+            return TaskChanges.resync(TaskCursor.encodeTime(next));
+        }
+
+        // курсор не откатываем назад, если клиент пришел раньше, чем истекло отставание
+        return new TaskChanges(items, deleted, TaskCursor.encodeTime(next.isAfter(since) ? next : since), false);
+    }
+
+    /**
+     * Возвращает время начала самой старой незавершенной транзакции в БД, но не позже текущего времени.
+     *
+     * @param now   текущее время
+     * @return      время, раньше которого все изменения задач уже зафиксированы
+     */
+    private Instant oldestTransactionStart(Instant now) {
+        NativeQuery<?> query = entityManager.createNativeQuery(OLDEST_TRANSACTION_SQL).unwrap(NativeQuery.class);
+        query.addScalar("xact_start", StandardBasicTypes.INSTANT);
+
+        Instant oldest = (Instant) query.getSingleResult();
+        return oldest == null || oldest.isAfter(now) ? now : oldest;
+    }
+
+    /**
+     * Удаляет записи об удаленных задачах старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${task-changes.compaction-interval}", initialDelayString = "${task-changes.compaction-interval}")
+    @Transactional
+    public void compact() {
+        int removed = tombstoneRepository.deleteDeletedBefore(Instant.now().minus(tombstoneRetention));
+        if (removed > 0) {
+            log.debug("Compacted {} task tombstones", removed);
+        }
+    }
+
+}
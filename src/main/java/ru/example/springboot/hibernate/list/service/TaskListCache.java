@@ -0,0 +1,257 @@
+package ru.example.springboot.hibernate.list.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Кэш списков задач пользователей: всех задач пользователя или отдельных страниц.
+ * Списки пользователя хранятся по ключу запроса (например, курсору и размеру страницы).
+ * <p>
+ * Списки пользователя сбрасываются по событию {@link TaskChangedEvent} после фиксации транзакции,
+ * в потоке, который ее зафиксировал, поэтому автор изменения следующим чтением всегда получает новые данные.
+ * Чтобы параллельное чтение, начатое до фиксации, не положило в кэш устаревший список,
+ * каждый сброс увеличивает поколение пользователя, а загруженный список кладется в кэш,
+ * только если поколение за время загрузки не изменилось.</p>
+ * <p>
+ * Размер ограничен кол-вом пользователей и оценкой занимаемой памяти (свойства task-list-cache.*).
+ * Списки общие для всех читателей и не должны изменяться.</p>
+ */
+@Component
+public class TaskListCache {
+
+    /** Кол-во полос поколений пользователей. Степень двойки. */
+    private static final int STRIPES = 64;
+
+    /** Оценка памяти на список и на одну задачу без учета описания, в байтах. */
+    private static final long LIST_OVERHEAD_BYTES = 96;
+    private static final long TASK_OVERHEAD_BYTES = 80;
+
+    private static final String CACHE_NAME = "tasks";
+
+    /** Списки по имени пользователя и ключу запроса. */
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+
+    /** Поколение каждой полосы пользователей, увеличивается при каждом сбросе. */
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    /** Суммарная оценка памяти всех списков. */
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final int maxOwners;
+    private final long maxWeightBytes;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Создает кэш и регистрирует его метрики.
+     *
+     * @param maxOwners     максимальное кол-во пользователей в кэше
+     * @param maxWeight     максимальная оценка памяти всех списков
+     * @param ttl           время жизни списка, ограничивает устаревание при изменениях в обход приложения
+     * @param meterRegistry реестр метрик
+     */
+    public TaskListCache(@Value("${task-list-cache.max-owners}") int maxOwners,
+                         @Value("${task-list-cache.max-weight}") DataSize maxWeight,
+                         @Value("${task-list-cache.ttl}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.maxOwners = maxOwners;
+        this.maxWeightBytes = maxWeight.toBytes();
+        this.ttlNanos = ttl.toNanos();
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.weight", totalWeight, AtomicLong::get)
+                .tags("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает все задачи пользователя из кэша, а при их отсутствии загружает их.
+     *
+     * @param owner     имя пользователя, владельца задач
+     * @param loader    функция загрузки списка из БД
+     * @return          неизменяемый список задач
+     */
+    public List<TaskDto> get(String owner, Function<String, List<TaskDto>> loader) {
+        return get(owner, "all", loader);
+    }
+
+    /**
+     * Возвращает список задач пользователя по ключу запроса из кэша, а при его отсутствии загружает его.
+     *
+     * @param owner     имя пользователя, владельца задач
+     * @param key       ключ запроса, однозначно определяющий список (например, курсор и размер страницы)
+     * @param loader    функция загрузки списка из БД
+     * @return          неизменяемый список задач
+     */
+    public List<TaskDto> get(String owner, String key, Function<String, List<TaskDto>> loader) {
+
+        Map<String, Entry> ownerEntries = entries.get(owner);
+        Entry entry = ownerEntries == null ? null : ownerEntries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt < 0) {
+            hits.increment();
+            return entry.tasks;
+        }
+        misses.increment();
+
+        // поколение запоминаем до загрузки: сброс во время загрузки его изменит
+        int stripe = stripe(owner);
+        long generation = generations.get(stripe);
+
+        List<TaskDto> tasks = List.copyOf(loader.apply(owner));
+        Entry loaded = new Entry(tasks, weigh(tasks), System.nanoTime() + ttlNanos);
+
+        if (loaded.weight <= maxWeightBytes) {
+            entries.compute(owner, (ownerKey, current) -> {
+                if (generations.get(stripe) != generation) {
+                    return current;
+                }
+                Map<String, Entry> updated = current == null ? new ConcurrentHashMap<>() : current;
+                Entry replaced = updated.put(key, loaded);
+                totalWeight.addAndGet(loaded.weight - (replaced == null ? 0 : replaced.weight));
+                return updated;
+            });
+            evictIfNeeded();
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Сбрасывает все списки задач пользователя.
+     *
+     * @param owner имя пользователя, владельца задач
+     */
+    public void evict(String owner) {
+        entries.compute(owner, (key, current) -> {
+            generations.incrementAndGet(stripe(key));
+            if (current != null) {
+                totalWeight.addAndGet(-weigh(current));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Сбрасывает списки задач всех пользователей.
+     */
+    public void evictAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Сбрасывает список пользователя после фиксации транзакции, изменившей его задачи.
+     * Если пользователь не известен, сбрасываются все списки.
+     *
+     * @param event событие изменения задачи
+     */
+    @TransactionalEventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+        if (event.getOwner() == null) {
+            evictAll();
+        } else {
+            evict(event.getOwner());
+        }
+    }
+
+    /**
+     * Удаляет произвольные списки, пока кол-во пользователей и оценка памяти не войдут в пределы.
+     */
+    private void evictIfNeeded() {
+        Iterator<String> owners = entries.keySet().iterator();
+        while ((entries.size() > maxOwners || totalWeight.get() > maxWeightBytes) && owners.hasNext()) {
+            remove(owners.next());
+        }
+    }
+
+    /**
+     * Удаляет списки пользователя из кэша без изменения поколения.
+     *
+     * @param owner имя пользователя, владельца задач
+     */
+    private void remove(String owner) {
+        entries.computeIfPresent(owner, (key, current) -> {
+            totalWeight.addAndGet(-weigh(current));
+            return null;
+        });
+    }
+
+    /**
+     * Суммирует оценку памяти списков пользователя.
+     *
+     * @param ownerEntries  списки пользователя по ключу запроса
+     * @return              оценка в байтах
+     */
+    private static long weigh(Map<String, Entry> ownerEntries) {
+        long weight = 0;
+        for (Entry entry : ownerEntries.values()) {
+            weight += entry.weight;
+        }
+        return weight;
+    }
+
+    /**
+     * Оценивает память, занимаемую списком задач.
+     *
+     * @param tasks список задач
+     * @return      оценка в байтах
+     */
+    private static long weigh(List<TaskDto> tasks) {
+        long weight = LIST_OVERHEAD_BYTES;
+        for (TaskDto task : tasks) {
+            weight += TASK_OVERHEAD_BYTES + (task.getDescription() == null ? 0 : 2L * task.getDescription().length());
+        }
+        return weight;
+    }
+
+    /**
+     * Возвращает номер полосы пользователя.
+     *
+     * @param owner имя пользователя
+     * @return      номер полосы от 0 до STRIPES - 1
+     */
+    private static int stripe(String owner) {
+        return (owner.hashCode() ^ (owner.hashCode() >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Закэшированный список задач.
+     *
+     * @param tasks     неизменяемый список задач
+     * @param weight    оценка занимаемой памяти в байтах
+     * @param expiresAt момент истечения в единицах System.nanoTime()
+     */
+    private record Entry(List<TaskDto> tasks, long weight, long expiresAt) {
+    }
+
+}
@@ -0,0 +1,139 @@
+package ru.example.springboot.hibernate.list.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+
+/**
+ * Применяет JSON Patch к задаче.
+ * <p>
+ * Частые операции ({@code replace}/{@code add} над {@code /status} и {@code /description},
+ * {@code remove} над {@code /status}) применяются напрямую к полям управляемой сущности,
+ * без преобразования задачи в JSON. Все остальные патчи применяются общим способом:
+ * задача сериализуется в JsonNode, патч применяется к дереву, результат десериализуется
+ * и из него в задачу переносятся только описание и статус. Идентификатор, версия и владелец
+ * патчем не изменяются, поэтому патч не может подменить чужую задачу.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskPatchEngine {
+
+    private static final String OP_ADD = "add";
+    private static final String OP_REPLACE = "replace";
+    private static final String OP_REMOVE = "remove";
+
+    private static final String PATH_STATUS = "/status";
+    private static final String PATH_DESCRIPTION = "/description";
+
+    /**
+     * Используется для разбора операций патча и для общего способа применения патча.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Обновляет данные задачи ({@code targetTask}) по массиву операций ({@code patch}).
+     *
+     * @param patch         массив операций, которые нужно последовательно применить к целевому объекту
+     * @param targetTask    задача, данные которой нужно обновить
+     * @return              {@code targetTask} с обновленными описанием и статусом
+     * @throws JsonPatchException       если некоторые атрибуты в фактическом JSON отсутствуют
+     * @throws JsonProcessingException  если в процессе сериализации/десериализации возникла ошибка
+     */
+    public Task apply(JsonPatch patch, Task targetTask) throws JsonPatchException, JsonProcessingException {
+
+        if (!applyToFields(patch, targetTask)) {
+            applyToTree(patch, targetTask);
+        }
+
+        return targetTask;
+    }
+
+    /**
+     * Применяет патч напрямую к полям задачи, если все его операции поддерживаются.
+     * Поля изменяются только после проверки всех операций, поэтому при отказе задача остается прежней.
+     *
+     * @param patch         массив операций
+     * @param targetTask    задача, данные которой нужно обновить
+     * @return              true, если патч применен, false если нужен общий способ
+     */
+    boolean applyToFields(JsonPatch patch, Task targetTask) {
+
+        JsonNode operations = objectMapper.valueToTree(patch);
+        if (operations == null || !operations.isArray()) {
+            return false;
+        }
+
+        String description = targetTask.getDescription();
+        TaskStatus status = targetTask.getStatus();
+
+        for (JsonNode operation : operations) {
+            String op = operation.path("op").asText();
+            String path = operation.path("path").asText();
+            JsonNode value = operation.get("value");
+            boolean isSet = OP_REPLACE.equals(op) || OP_ADD.equals(op);
+
+            if (PATH_STATUS.equals(path) && isSet && toStatus(value) != null) {
+                status = toStatus(value);
+            } else if (PATH_STATUS.equals(path) && OP_REMOVE.equals(op)) {
+                // как и при десериализации задачи без поля status
+                status = TaskStatus.TODO;
+            } else if (PATH_DESCRIPTION.equals(path) && isSet && value != null && value.isTextual()) {
+                description = value.textValue();
+            } else {
+                return false;
+            }
+        }
+
+        targetTask.setDescription(description);
+        targetTask.setStatus(status);
+
+        return true;
+    }
+
+    /**
+     * Применяет патч к задаче, преобразованной в JsonNode, и переносит в задачу описание и статус.
+     * Поля изменяются только после успешного применения патча, поэтому при ошибке задача остается прежней.
+     *
+     * @param patch         массив операций
+     * @param targetTask    задача, данные которой нужно обновить
+     * @throws JsonPatchException       если некоторые атрибуты в фактическом JSON отсутствуют
+     * @throws JsonProcessingException  если в процессе сериализации/десериализации возникла ошибка
+     */
+    void applyToTree(JsonPatch patch, Task targetTask) throws JsonPatchException, JsonProcessingException {
+        // владелец не сериализуется: он не изменяется патчем, а его задачи ссылаются обратно на него
+        Task source = targetTask.toBuilder().user(null).build();
+        JsonNode patched = patch.apply(objectMapper.convertValue(source, JsonNode.class));
+
+        Task patchedTask = objectMapper.treeToValue(patched, Task.class);
+        targetTask.setDescription(patchedTask.getDescription());
+        targetTask.setStatus(patchedTask.getStatus());
+    }
+
+    /**
+     * Преобразует значение операции в статус задачи.
+     *
+     * @param value значение операции
+     * @return      статус или null, если значение не является именем статуса
+     */
+    private TaskStatus toStatus(JsonNode value) {
+
+        if (value == null || !value.isTextual()) {
+            return null;
+        }
+
+        for (TaskStatus status : TaskStatus.values()) {
+            if (status.name().equals(value.textValue())) {
+                return status;
+            }
+        }
+
+        return null;
+    }
+
+}
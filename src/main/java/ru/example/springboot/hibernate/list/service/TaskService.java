@@ -1,20 +1,45 @@
 package ru.example.springboot.hibernate.list.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskBatchResult;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskPage;
 import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UpdatedTask;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.exception.ApiException;
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
+import ru.example.springboot.hibernate.list.model.exception.PreconditionFailedException;
 import ru.example.springboot.hibernate.list.model.exception.ResourceNotFoundException;
 import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.util.TaskCursor;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Класс содержит основную логику обработки CRUD методов.
@@ -23,6 +48,21 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TaskService {
 
+    /**
+     * Размер пакета вставки, должен совпадать с hibernate.jdbc.batch_size.
+     */
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    /**
+     * Максимальное кол-во задач в одном пакетном запросе.
+     */
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    /**
+     * Максимальное кол-во задач в одном запросе на массовое изменение статуса.
+     */
+    private static final int MAX_BULK_IDS = 1000;
+
     /**
      * Предоставляет встроенные методы для CRUD-операций.
      *
@@ -30,11 +70,55 @@ public class TaskService {
     private final TaskRepository taskRepository;
 
     /**
-     * Используется для сериализации и десериализации объектов Java в JSON
-     * и наоборот.
+     * Применяет JSON Patch к задачам.
+     *
+     * @see TaskPatchEngine
+     */
+    private final TaskPatchEngine taskPatchEngine;
+
+    /**
+     * Используется для пакетной вставки задач в обход save(),
+     * чтобы управлять сбросом и очисткой контекста персистентности.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Проверяет задачи пакета до вставки, чтобы собрать ошибки по каждой задаче.
+     */
+    private final Validator validator;
+
+    /**
+     * Открывает отдельную транзакцию на каждую попытку в {@link #updateWithRetry}.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Публикует события изменения задач для счетчиков и других слушателей.
      *
+     * @see TaskChangedEvent
      */
-    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Кэш списков задач пользователей.
+     *
+     * @see TaskListCache
+     */
+    private final TaskListCache taskListCache;
+
+    /**
+     * Журнал изменений задач, в него записываются удаления.
+     *
+     * @see TaskChangeLog
+     */
+    private final TaskChangeLog taskChangeLog;
+
+    /**
+     * Отложенная запись часто меняющихся статусов задач.
+     *
+     * @see TaskStatusWriteBehind
+     */
+    private final TaskStatusWriteBehind statusWriteBehind;
 
     /**
      * Возвращает список со всеми задачами.
@@ -43,13 +127,135 @@ public class TaskService {
      * @return список задач
      */
     @Transactional(readOnly = true)
-    public List<Task> findAll() {
-        return taskRepository.findAll();
+    public List<TaskDto> findAll() {
+        return taskRepository.findAllProjected();
+    }
+
+    /**
+     * Возвращает страницу задач, следующих за задачей с указанным id.
+     * Только для транзакций чтения.
+     *
+     * @param afterId   id последней задачи предыдущей страницы, 0 для первой страницы
+     * @param limit     максимальное кол-во задач на странице
+     * @return          список задач, упорядоченный по id
+     */
+    @Transactional(readOnly = true)
+    public List<TaskDto> findPage(Long afterId, int limit) {
+        return taskRepository.findPageAfter(afterId, Limit.of(limit));
+    }
+
+    /**
+     * Возвращает сводную версию страницы задач, следующих за задачей с указанным id.
+     * Совпадает с {@link #pageVersion(List)} для той же страницы, пока задачи страницы не изменились.
+     * Только для транзакций чтения.
+     *
+     * @param afterId   id последней задачи предыдущей страницы, 0 для первой страницы
+     * @param limit     максимальное кол-во задач на странице
+     * @return          сводная версия страницы
+     */
+    @Transactional(readOnly = true)
+    public String findPageVersion(Long afterId, int limit) {
+        return taskRepository.findPageVersionAfter(afterId, limit);
+    }
+
+    /**
+     * Вычисляет сводную версию уже загруженной страницы задач
+     * в том же формате, что и {@link #findPageVersion(Long, int)}.
+     *
+     * @param page  задачи страницы
+     * @return      сводная версия страницы
+     */
+    public String pageVersion(List<TaskDto> page) {
+        long versionSum = 0;
+        long maxId = 0;
+
+        for (TaskDto task : page) {
+            versionSum += task.getVersion() == null ? 0 : task.getVersion();
+            maxId = Math.max(maxId, task.getId());
+        }
+
+        return page.size() + "-" + versionSum + "-" + maxId;
+    }
+
+    /**
+     * Возвращает версию задачи, не загружая сущность.
+     * Транзакция не открывается, чтобы отложенный статус задачи записывался до чтения в своей транзакции.
+     *
+     * @param id    числовой идентификатор задачи
+     * @return      версия задачи или null, если задача не найдена
+     */
+    public Long findVersionById(Long id) {
+        statusWriteBehind.flushForRead(id);
+        return taskRepository.findVersionById(id).orElse(null);
+    }
+
+    /**
+     * Возвращает список задач пользователя.
+     * Список берется из {@link TaskListCache}, к БД запрос идет только при промахе,
+     * поэтому транзакция здесь не открывается.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @return          неизменяемый список задач, упорядоченный по id
+     */
+    public List<TaskDto> findAllByUserUsername(String username) {
+        return taskListCache.get(username, taskRepository::findByUserUsername);
     }
 
+    /**
+     * Возвращает страницу задач пользователя (keyset-пагинация в обе стороны).
+     * Страницы берутся из {@link TaskListCache}, к БД запрос идет только при промахе.
+     * Если предыдущих задач меньше размера страницы, возвращается первая страница.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param afterId   id последней задачи предыдущей страницы, 0 для первой страницы
+     * @param beforeId  id первой задачи следующей страницы, если листаем назад, иначе 0
+     * @param size      максимальное кол-во задач на странице
+     * @return          страница задач, упорядоченных по id, с курсорами соседних страниц
+     */
+    public TaskPage findPageByUserUsername(String username, Long afterId, Long beforeId, int size) {
+
+        if (beforeId > 0) {
+            List<TaskDto> rows = taskListCache.get(username, "before:" + beforeId + ":" + size,
+                    owner -> taskRepository.findPageByOwnerBefore(owner, beforeId, Limit.of(size + 1)));
+            if (rows.size() <= size) {
+                return findPageByUserUsername(username, 0L, 0L, size);
+            }
+
+            List<TaskDto> items = rows.subList(0, size).reversed();
+            return new TaskPage(items, TaskCursor.encode(items.getLast().getId()), TaskCursor.encode(items.getFirst().getId()));
+        }
+
+        List<TaskDto> rows = taskListCache.get(username, "after:" + afterId + ":" + size,
+                owner -> taskRepository.findPageByOwnerAfter(owner, afterId, Limit.of(size + 1)));
+
+        List<TaskDto> items = rows.size() > size ? rows.subList(0, size) : rows;
+        String nextCursor = rows.size() > size ? TaskCursor.encode(items.getLast().getId()) : null;
+        String previousCursor = afterId > 0 ? TaskCursor.encode(items.isEmpty() ? afterId + 1 : items.getFirst().getId()) : null;
+
+        return new TaskPage(items, nextCursor, previousCursor);
+    }
+
+    /**
+     * Последовательно передает все задачи пользователя обработчику, не собирая их в список.
+     * Задачи читаются из курсора БД в рамках одной транзакции чтения.
+     *
+     * @param username  имя пользователя, владельца задач
+     * @param consumer  обработчик, которому передается каждая задача
+     * @return          кол-во переданных задач
+     */
     @Transactional(readOnly = true)
-    public List<Task> findAllByUserUsername(String username) {
-        return taskRepository.findByUserUsername(username);
+    public long exportByUserUsername(String username, Consumer<TaskDto> consumer) {
+        long count = 0;
+
+        try (Stream<TaskDto> tasks = taskRepository.streamByUserUsername(username)) {
+            Iterator<TaskDto> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+
+        return count;
     }
 
     /**
@@ -60,68 +266,303 @@ public class TaskService {
      */
     @Transactional(readOnly = false)
     public Task save(@Valid Task task) {
-        return taskRepository.save(task);
+
+        Task savedTask = taskRepository.save(task);
+        publish(TaskChangedEvent.Type.CREATED, savedTask.getId(), ownerOf(savedTask), savedTask.getStatus(), null);
+
+        return savedTask;
+    }
+
+    /**
+     * Сохраняет пакет задач пользователя в одной транзакции.
+     * Вставки группируются драйвером JDBC в пакеты, контекст персистентности
+     * сбрасывается и очищается каждые {@value #JDBC_BATCH_SIZE} задач.
+     * Задачи, не прошедшие валидацию, пропускаются и возвращаются в списке ошибок.
+     *
+     * @param tasks задачи, которые нужно сохранить
+     * @param owner пользователь, владелец задач
+     * @return      созданные задачи и ошибки валидации
+     * @throws BadRequestException если пакет пуст или превышает допустимый размер
+     */
+    @Transactional
+    public TaskBatchResult saveAll(List<Task> tasks, UserEntity owner) throws BadRequestException {
+
+        if (tasks == null || tasks.isEmpty() || tasks.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch must contain from 1 to " + MAX_BATCH_SIZE + " tasks");
+        }
+
+        List<TaskDto> created = new ArrayList<>(tasks.size());
+        List<TaskBatchResult.ItemError> errors = new ArrayList<>();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task == null) {
+                errors.add(new TaskBatchResult.ItemError(i, "Task must not be null"));
+                continue;
+            }
+
+            task.setId(null);
+            task.setUser(owner);
+            if (task.getStatus() == null) {
+                task.setStatus(TaskStatus.TODO);
+            }
+
+            Set<ConstraintViolation<Task>> violations = validator.validate(task);
+            if (!violations.isEmpty()) {
+                errors.add(new TaskBatchResult.ItemError(i, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .collect(Collectors.joining("\n"))));
+                continue;
+            }
+
+            entityManager.persist(task);
+            created.add(new TaskDto(task.getId(), task.getDescription(), task.getStatus(), owner.getUsername(), task.getVersion()));
+            publish(TaskChangedEvent.Type.CREATED, task.getId(), owner.getUsername(), task.getStatus(), null);
+
+            if (created.size() % JDBC_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        return new TaskBatchResult(created, errors);
     }
 
     /**
      * Возвращает задачу найденную по идентификатору.
-     * Только для транзакций чтения.
+     * Транзакция не открывается, чтобы отложенный статус задачи записывался до чтения в своей транзакции.
      *
      * @param id    числовой идентификатор задачи, которую нужно найти
      * @return      найденная задача
      */
-    @Transactional(readOnly = true)
     public Task findById(Long id) {
+        statusWriteBehind.flushForRead(id);
         return taskRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
     }
 
     /**
-     * Обновляет задачу новыми данными. При этом задача перезаписывается полностью.
+     * Возвращает задачу в виде DTO, найденную по идентификатору.
+     * Транзакция не открывается, чтобы отложенный статус задачи записывался до чтения в своей транзакции.
+     *
+     * @param id    числовой идентификатор задачи, которую нужно найти
+     * @return      найденная задача
+     * @throws ResourceNotFoundException если задача не была найдена по идентификатору
+     */
+    public TaskDto findDtoById(Long id) throws ResourceNotFoundException {
+        statusWriteBehind.flushForRead(id);
+        return taskRepository.findProjectedById(id).orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+    }
+
+    /**
+     * Обновляет задачу пользователя новыми данными одним запросом UPDATE.
+     * При этом описание и статус задачи перезаписываются полностью.
      *
      * @param id          числовой идентификатор задачи, которую нужно изменить
+     * @param owner       имя пользователя, владельца задачи
      * @param changedTask задача содержащая измененные данные
      * @return            измененная задача
-     * @throws ResourceNotFoundException если задача не была найдена по идентификатору
+     * @throws ConstraintViolationException если измененные данные не прошли валидацию
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
      */
     @Transactional
-    public Task update(Long id, @Valid Task changedTask) throws ResourceNotFoundException {
+    public TaskDto update(Long id, String owner, Task changedTask) throws ResourceNotFoundException {
+        return update(id, owner, changedTask, null);
+    }
+
+    /**
+     * Обновляет задачу пользователя новыми данными одним запросом UPDATE, если версия задачи
+     * совпадает с ожидаемой. При этом описание и статус задачи перезаписываются полностью.
+     *
+     * @param id              числовой идентификатор задачи, которую нужно изменить
+     * @param owner           имя пользователя, владельца задачи
+     * @param changedTask     задача содержащая измененные данные
+     * @param expectedVersion ожидаемая версия задачи, null если версию проверять не нужно
+     * @return                измененная задача
+     * @throws ConstraintViolationException если измененные данные не прошли валидацию
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
+     * @throws PreconditionFailedException если версия задачи не совпала с ожидаемой
+     */
+    @Transactional
+    public TaskDto update(Long id, String owner, Task changedTask, Long expectedVersion)
+            throws ResourceNotFoundException, PreconditionFailedException {
+
+        TaskStatus status = changedTask.getStatus() == null ? TaskStatus.TODO : changedTask.getStatus();
+        changedTask.setStatus(status);
+
+        Set<ConstraintViolation<Task>> violations = validator.validate(changedTask);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        statusWriteBehind.flush(List.of(id));
 
-        Task foundTask = findById(id).copyWithoutId(changedTask);
+        UpdatedTask updated = taskRepository.updateByIdAndOwner(id, changedTask.getDescription(), status, owner,
+                        expectedVersion, Instant.now())
+                .orElseThrow(() -> updateRejected(id, owner, expectedVersion));
+        publish(TaskChangedEvent.Type.UPDATED, id, owner, status, updated.getPreviousStatus());
 
-        return taskRepository.save(foundTask);
+        return updated.getTask();
     }
 
     /**
-     * Обновляет статус задачи.  При этом задача перезаписывается полностью.
+     * Обновляет статус задачи пользователя запросом UPDATE, не загружая сущность.
      *
      * @param id        числовой идентификатор задачи, статус которой нужно изменить
+     * @param owner     имя пользователя, владельца задачи
      * @param newStatus новый статус
      * @return          измененная задача
-     * @throws ResourceNotFoundException если задача не была найдена по идентификатору
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
+     */
+    @Transactional
+    public TaskDto update(Long id, String owner, TaskStatus newStatus) throws ResourceNotFoundException {
+        return update(id, owner, newStatus, null);
+    }
+
+    /**
+     * Обновляет статус задачи пользователя запросом UPDATE, не загружая сущность,
+     * если версия задачи совпадает с ожидаемой. Измененная задача возвращается тем же запросом (RETURNING).
+     * Если версия не передана и включена отложенная запись статусов, статус ставится в очередь
+     * {@link TaskStatusWriteBehind} и возвращается задача с новым статусом без версии.
+     *
+     * @param id              числовой идентификатор задачи, статус которой нужно изменить
+     * @param owner           имя пользователя, владельца задачи
+     * @param newStatus       новый статус
+     * @param expectedVersion ожидаемая версия задачи, null если версию проверять не нужно
+     * @return                измененная задача
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
+     * @throws PreconditionFailedException если версия задачи не совпала с ожидаемой
+     */
+    @Transactional
+    public TaskDto update(Long id, String owner, TaskStatus newStatus, Long expectedVersion)
+            throws ResourceNotFoundException, PreconditionFailedException {
+
+        if (newStatus == null) {
+            throw new BadRequestException("Status must not be null");
+        }
+
+        if (expectedVersion == null && statusWriteBehind.isEnabled()) {
+            TaskDto current = taskRepository.findProjectedById(id)
+                    .filter(task -> owner.equals(task.getOwner()))
+                    .orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+            if (statusWriteBehind.submit(id, owner, newStatus)) {
+                // версия станет известна после записи статуса
+                return new TaskDto(id, current.getDescription(), newStatus, owner, null);
+            }
+        }
+
+        statusWriteBehind.flush(List.of(id));
+
+        UpdatedTask updated = taskRepository.updateByIdAndOwner(id, null, newStatus, owner, expectedVersion, Instant.now())
+                .orElseThrow(() -> updateRejected(id, owner, expectedVersion));
+        publish(TaskChangedEvent.Type.UPDATED, id, owner, newStatus, updated.getPreviousStatus());
+
+        return updated.getTask();
+    }
+
+    /**
+     * Изменяет задачу пользователя без блокировок: читает текущее состояние, применяет изменение
+     * и записывает его условным UPDATE по версии. Если задачу успел изменить кто-то другой,
+     * попытка повторяется с новым состоянием. Каждая попытка выполняется в отдельной транзакции.
+     * Предназначен для внутренних вызовов, которым нужно изменить задачу без потери чужих изменений.
+     *
+     * @param id            числовой идентификатор задачи, которую нужно изменить
+     * @param owner         имя пользователя, владельца задачи
+     * @param change        функция, вычисляющая новое состояние задачи по текущему
+     * @param maxAttempts   максимальное кол-во попыток
+     * @return              измененная задача
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
+     * @throws PreconditionFailedException если все попытки завершились конфликтом версий
+     */
+    public TaskDto updateWithRetry(Long id, String owner, UnaryOperator<TaskDto> change, int maxAttempts)
+            throws ResourceNotFoundException, PreconditionFailedException {
+
+        for (int attempt = 1; ; attempt++) {
+            statusWriteBehind.flush(List.of(id));
+            TaskDto current = taskRepository.findProjectedById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+            Long expectedVersion = current.getVersion();
+            TaskDto changed = change.apply(current);
+            Task changedTask = Task.builder()
+                    .description(changed.getDescription())
+                    .status(changed.getStatus())
+                    .build();
+
+            try {
+                return transactionTemplate.execute(status -> update(id, owner, changedTask, expectedVersion));
+            } catch (PreconditionFailedException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Изменяет статус нескольких задач пользователя одним запросом UPDATE.
+     * Сущности не загружаются и не попадают в контекст персистентности.
+     *
+     * @param ids       идентификаторы задач, статус которых нужно изменить
+     * @param newStatus новый статус
+     * @param owner     имя пользователя, владельца задач
+     * @return          кол-во измененных задач
+     * @throws BadRequestException если список пуст, слишком велик или статус не указан
      */
     @Transactional
-    public Task update(Long id, TaskStatus newStatus) throws ResourceNotFoundException {
+    public int updateStatus(Collection<Long> ids, TaskStatus newStatus, String owner) throws BadRequestException {
+
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BULK_IDS) {
+            throw new BadRequestException("Ids must contain from 1 to " + MAX_BULK_IDS + " elements");
+        }
+        if (newStatus == null) {
+            throw new BadRequestException("Status must not be null");
+        }
 
-        Task task = findById(id);
-        task.setStatus(newStatus);
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        statusWriteBehind.flush(distinctIds);
+        List<UpdatedTask> updated = taskRepository.updateStatusByIdsAndOwner(newStatus, distinctIds, owner, Instant.now());
+        // задачи других пользователей не изменяются и не попадают в результат
+        updated.forEach(task -> publish(TaskChangedEvent.Type.UPDATED, task.getTask().getId(), owner, newStatus,
+                task.getPreviousStatus()));
 
-        return taskRepository.save(task);
+        return updated.size();
     }
 
     /**
-     * Обновляет статус задачи. Задача обновляется частично, благодаря JsonPatch.
+     * Обновляет статус задачи пользователя, если версия задачи совпадает с ожидаемой.
+     * Задача обновляется частично, благодаря JsonPatch. Если задачу изменили параллельно
+     * после чтения, запись отклоняется проверкой версии при сбросе изменений.
      *
-     * @param id    числовой идентификатор задачи, статус которой нужно изменить
-     * @param patch список операций, которые нужно последовательно применить к целевому объекту
-     * @return      задача с измененным статусом
+     * @param id              числовой идентификатор задачи, статус которой нужно изменить
+     * @param owner           имя пользователя, владельца задачи
+     * @param patch           список операций, которые нужно последовательно применить к целевому объекту
+     * @param expectedVersion ожидаемая версия задачи, null если версию проверять не нужно
+     * @return                задача с измененным статусом
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
+     * @throws PreconditionFailedException если версия задачи не совпала с ожидаемой
      */
     @Transactional
-    public Task update(Long id, JsonPatch patch) {
-        Task task = findById(id);
+    public Task update(Long id, String owner, JsonPatch patch, Long expectedVersion)
+            throws ResourceNotFoundException, PreconditionFailedException {
+
+        statusWriteBehind.flush(List.of(id));
+
+        Task task = taskRepository.findByIdAndOwner(id, owner)
+                .orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+
+        if (expectedVersion != null && !expectedVersion.equals(task.getVersion())) {
+            throw new PreconditionFailedException("Task with id " + id + " has version " + task.getVersion()
+                    + ", expected " + expectedVersion);
+        }
+
+        TaskStatus previousStatus = task.getStatus();
 
         try {
-            Task taskPatched = applyPatchToTask(patch, task);
-            return taskRepository.save(taskPatched);
+            Task taskPatched = taskRepository.save(taskPatchEngine.apply(patch, task));
+            publish(TaskChangedEvent.Type.UPDATED, id, owner, taskPatched.getStatus(), previousStatus);
+            return taskPatched;
         } catch (JsonPatchException | JsonProcessingException ex) {
             throw new RuntimeException(ex);
         }
@@ -129,31 +570,74 @@ public class TaskService {
     }
 
     /**
-     * Удаляет задачу по идентификатору задачи.
+     * Удаляет задачу пользователя по идентификатору задачи одним запросом DELETE
+     * и записывает удаление в журнал изменений для синхронизации клиентов.
      *
      * @param id    числовой идентификатор задачи, которую нужно удалить
+     * @param owner имя пользователя, владельца задачи
+     * @throws ResourceNotFoundException если задача не была найдена у пользователя
      */
     @Transactional
-    public void deleteById(Long id) {
-        if (!taskRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Task with id " + id + " not found");
-        }
+    public void deleteById(Long id, String owner) throws ResourceNotFoundException {
+        statusWriteBehind.flush(List.of(id));
+        TaskStatus previousStatus = taskRepository.deleteByIdAndOwner(id, owner)
+                .orElseThrow(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+
+        taskChangeLog.recordDeletion(id, owner);
+        publish(TaskChangedEvent.Type.DELETED, id, owner, null, previousStatus);
+    }
+
+    /**
+     * Возвращает исключение для UPDATE, не изменившего задачу.
+     *
+     * @param id              числовой идентификатор задачи
+     * @param owner           имя пользователя, владельца задачи
+     * @param expectedVersion ожидаемая версия задачи, null если версия не проверялась
+     * @return                ResourceNotFoundException, если задачи нет у пользователя, иначе PreconditionFailedException
+     */
+    private ApiException updateRejected(Long id, String owner, Long expectedVersion) {
+        return expectedVersion == null
+                ? new ResourceNotFoundException("Task with id " + id + " not found")
+                : versionConflict(id, owner, expectedVersion);
+    }
 
-        taskRepository.deleteById(id);
+    /**
+     * Определяет, почему условный UPDATE не изменил задачу, и возвращает соответствующее исключение.
+     *
+     * @param id              числовой идентификатор задачи
+     * @param owner           имя пользователя, владельца задачи
+     * @param expectedVersion ожидаемая версия задачи
+     * @return                ResourceNotFoundException, если задачи нет у пользователя, иначе PreconditionFailedException
+     */
+    private ApiException versionConflict(Long id, String owner, Long expectedVersion) {
+        return taskRepository.findVersionByIdAndOwner(id, owner)
+                .<ApiException>map(actualVersion -> new PreconditionFailedException("Task with id " + id
+                        + " has version " + actualVersion + ", expected " + expectedVersion))
+                .orElseGet(() -> new ResourceNotFoundException("Task with id " + id + " not found"));
+    }
+
+    /**
+     * Публикует событие изменения задачи. Слушатели получают его в текущей транзакции
+     * или после ее фиксации, в зависимости от своей фазы.
+     *
+     * @param type              вид изменения
+     * @param taskId            идентификатор задачи, null если изменено несколько задач
+     * @param owner             имя пользователя, владельца задачи
+     * @param status            статус после изменения, null если не известен
+     * @param previousStatus    статус до изменения, null если не известен
+     */
+    private void publish(TaskChangedEvent.Type type, Long taskId, String owner, TaskStatus status, TaskStatus previousStatus) {
+        eventPublisher.publishEvent(new TaskChangedEvent(type, taskId, owner, status, previousStatus));
     }
 
     /**
-     * Обновляет данные задачи ({@code targetTask}) по массиву операций ({@code patch}).
+     * Возвращает имя владельца задачи.
      *
-     * @param patch         массив операций, которые нужно последовательно применить к целевому объекту
-     * @param targetTask    задача, данные которой нужно обновить
-     * @return              задача с обновленными данными
-     * @throws JsonPatchException       если некоторые атрибуты в фактическом JSON отсутствуют
-     * @throws JsonProcessingException  если в процессе сериализации/десериализации возникла ошибка
+     * @param task  задача
+     * @return      имя пользователя или null, если владелец не задан
      */
-    private Task applyPatchToTask(JsonPatch patch, Task targetTask)  throws JsonPatchException, JsonProcessingException {
-        JsonNode patched = patch.apply(objectMapper.convertValue(targetTask, JsonNode.class));
-        return objectMapper.treeToValue(patched, Task.class);
+    private static String ownerOf(Task task) {
+        return task.getUser() == null ? null : task.getUser().getUsername();
     }
 
 }
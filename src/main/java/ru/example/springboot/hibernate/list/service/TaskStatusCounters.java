@@ -0,0 +1,230 @@
+package ru.example.springboot.hibernate.list.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики задач пользователей по статусам.
+ * <p>
+ * Счетчики пользователя загружаются из БД одним запросом GROUP BY при первом обращении,
+ * а затем поддерживаются инкрементально по событиям {@link TaskChangedEvent} после фиксации транзакции.
+ * Если по событию нельзя вычислить изменение (например, изменены сразу все задачи пользователя),
+ * счетчики пользователя сбрасываются и загружаются заново при следующем обращении.
+ * Все счетчики периодически сбрасываются, чтобы исправить возможные расхождения с БД.</p>
+ * <p>
+ * Загруженные счетчики кладутся в кэш, только если за время загрузки у пользователей той же полосы
+ * не было незавершенных транзакций с изменениями задач: иначе загрузка могла увидеть зафиксированное
+ * изменение, которое затем применилось бы к счетчикам еще раз. Поэтому изменение учитывается в полосе
+ * уже при публикации события, а не только после фиксации.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class TaskStatusCounters {
+
+    /** Кол-во полос для отслеживания изменений во время загрузки счетчиков. Степень двойки. */
+    private static final int STRIPES = 64;
+
+    private final TaskRepository taskRepository;
+
+    /** Счетчики по имени пользователя, индекс в массиве - порядковый номер статуса. */
+    private final Map<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    /** Кол-во изменений в каждой полосе пользователей, позволяет обнаружить изменения во время загрузки. */
+    private final AtomicLongArray changes = new AtomicLongArray(STRIPES);
+
+    /** Кол-во опубликованных, но еще не примененных изменений в каждой полосе пользователей. */
+    private final AtomicLongArray inFlight = new AtomicLongArray(STRIPES);
+
+    /**
+     * Возвращает кол-во задач пользователя по каждому статусу.
+     *
+     * @param owner имя пользователя, владельца задач
+     * @return      кол-во задач по статусам, включая статусы без задач
+     */
+    public Map<TaskStatus, Long> get(String owner) {
+
+        LongAdder[] ownerCounters = counters.get(owner);
+        if (ownerCounters == null) {
+            int stripe = stripe(owner);
+            long changesBefore = changes.get(stripe);
+            LongAdder[] loaded = load(owner);
+            ownerCounters = counters.putIfAbsent(owner, loaded);
+            if (ownerCounters == null) {
+                ownerCounters = loaded;
+                // проверка после вставки: изменение, примененное до вставки, не попало в счетчики,
+                // а примененное после - могло быть учтено дважды
+                if (inFlight.get(stripe) != 0 || changes.get(stripe) != changesBefore) {
+                    counters.remove(owner, loaded);
+                }
+            }
+        }
+
+        Map<TaskStatus, Long> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            result.put(status, Math.max(0, ownerCounters[status.ordinal()].sum()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Учитывает изменение задач пользователя в его полосе и применяет его к счетчикам
+     * после завершения транзакции, если она зафиксирована.
+     *
+     * @param event событие изменения задачи
+     */
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+
+        if (event.getOwner() == null) {
+            return;
+        }
+
+        int stripe = stripe(event.getOwner());
+        inFlight.incrementAndGet(stripe);
+        changes.incrementAndGet(stripe);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(event, true);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<TaskChangedEvent> pending = (List<TaskChangedEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            bind(pending);
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Привязывает изменения к текущей транзакции: после ее завершения они применяются к счетчикам.
+     *
+     * @param pending   изменения транзакции
+     */
+    private void bind(List<TaskChangedEvent> pending) {
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskStatusCounters.this);
+                pending.forEach(event -> complete(event, status == STATUS_COMMITTED));
+            }
+        });
+    }
+
+    /**
+     * Применяет зафиксированное изменение к счетчикам и снимает его с полосы пользователя.
+     *
+     * @param event     событие изменения задачи
+     * @param committed зафиксирована ли транзакция
+     */
+    private void complete(TaskChangedEvent event, boolean committed) {
+        int stripe = stripe(event.getOwner());
+        try {
+            if (committed) {
+                apply(event);
+            }
+        } finally {
+            changes.incrementAndGet(stripe);
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    /**
+     * Обновляет счетчики пользователя по зафиксированному изменению.
+     *
+     * @param event событие изменения задачи
+     */
+    private void apply(TaskChangedEvent event) {
+
+        LongAdder[] ownerCounters = counters.get(event.getOwner());
+        if (ownerCounters == null) {
+            return;
+        }
+
+        TaskStatus status = event.getStatus();
+        TaskStatus previousStatus = event.getPreviousStatus();
+
+        switch (event.getType()) {
+            case CREATED -> {
+                if (status != null) {
+                    ownerCounters[status.ordinal()].increment();
+                    return;
+                }
+            }
+            case UPDATED -> {
+                if (status != null && previousStatus != null) {
+                    ownerCounters[previousStatus.ordinal()].decrement();
+                    ownerCounters[status.ordinal()].increment();
+                    return;
+                }
+            }
+            case DELETED -> {
+                if (previousStatus != null) {
+                    ownerCounters[previousStatus.ordinal()].decrement();
+                    return;
+                }
+            }
+        }
+
+        counters.remove(event.getOwner());
+    }
+
+    /**
+     * Периодически сбрасывает все счетчики, чтобы следующее обращение загрузило их из БД.
+     */
+    @Scheduled(fixedDelayString = "${task-counters.reconcile-interval:PT5M}",
+            initialDelayString = "${task-counters.reconcile-interval:PT5M}")
+    public void reconcile() {
+        counters.clear();
+    }
+
+    /**
+     * Загружает счетчики пользователя из БД.
+     *
+     * @param owner имя пользователя, владельца задач
+     * @return      счетчики, индекс в массиве - порядковый номер статуса
+     */
+    private LongAdder[] load(String owner) {
+
+        LongAdder[] ownerCounters = new LongAdder[TaskStatus.values().length];
+        for (int i = 0; i < ownerCounters.length; i++) {
+            ownerCounters[i] = new LongAdder();
+        }
+
+        List<Object[]> rows = taskRepository.countByStatusForOwner(owner);
+        for (Object[] row : rows) {
+            ownerCounters[((TaskStatus) row[0]).ordinal()].add((Long) row[1]);
+        }
+
+        return ownerCounters;
+    }
+
+    /**
+     * Возвращает номер полосы пользователя.
+     *
+     * @param owner имя пользователя
+     * @return      номер полосы от 0 до {@value #STRIPES} - 1
+     */
+    private static int stripe(String owner) {
+        return (owner.hashCode() ^ (owner.hashCode() >>> 16)) & (STRIPES - 1);
+    }
+
+}
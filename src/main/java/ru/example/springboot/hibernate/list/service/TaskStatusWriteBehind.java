@@ -0,0 +1,274 @@
+package ru.example.springboot.hibernate.list.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись статусов задач (write-behind) для интеграций, которые меняют статус много раз в секунду.
+ * <p>
+ * Включается свойством {@code task-status-write-behind.enabled}. Изменения статуса без проверки версии
+ * не записываются сразу, а накапливаются в памяти: для каждой задачи хранится только последний статус.
+ * Раз в {@code task-status-write-behind.window} накопленные статусы записываются массовыми UPDATE
+ * по владельцу и статусу, по одному событию {@link TaskChangedEvent} на задачу.</p>
+ * <p>
+ * Перед любым другим изменением задачи ее отложенный статус записывается, чтобы более старый статус
+ * не перезаписал более новое изменение. При {@code flush-on-read} статус записывается и перед чтением задачи
+ * по id, при {@code flush-on-shutdown} - при остановке приложения. Статусы, не записанные до аварийной
+ * остановки, теряются: режим подходит только для статусов, которые интеграция может повторить.</p>
+ * <p>
+ * Статус записывается в транзакции вызывающего, а если ее нет - в своей, поэтому запись не занимает
+ * второе соединение из пула. Перед тем как забрать статусы из очереди, строки задач блокируются
+ * (SELECT ... FOR UPDATE): следующий статус задачи можно забрать только после фиксации предыдущего,
+ * поэтому статусы одной задачи фиксируются в порядке их поступления. Если транзакция откатывается,
+ * статусы возвращаются в очередь, если их не успели заменить более новые.</p>
+ */
+@Slf4j
+@Component
+public class TaskStatusWriteBehind implements DisposableBean {
+
+    /** Максимальное кол-во задач в одном UPDATE. */
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate writeTransaction;
+
+    private final boolean enabled;
+    private final int maxPending;
+    private final boolean flushOnRead;
+    private final boolean flushOnShutdown;
+
+    private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+
+    private final Counter coalescedCounter;
+    private final Counter flushedCounter;
+    private final Counter failureCounter;
+    private final Timer flushTimer;
+
+    /**
+     * Создает очередь отложенной записи статусов и регистрирует ее метрики.
+     *
+     * @param taskRepository        репозиторий задач
+     * @param eventPublisher        публикует события изменения задач
+     * @param transactionManager    менеджер транзакций, без транзакции вызывающего запись идет в своей
+     * @param enabled               включена ли отложенная запись
+     * @param maxPending            максимальное кол-во задач в очереди, сверх него статус пишется сразу
+     * @param flushOnRead           записывать ли отложенный статус перед чтением задачи по id
+     * @param flushOnShutdown       записывать ли очередь при остановке приложения
+     * @param meterRegistry         реестр метрик
+     */
+    public TaskStatusWriteBehind(TaskRepository taskRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${task-status-write-behind.enabled}") boolean enabled,
+                                 @Value("${task-status-write-behind.max-pending}") int maxPending,
+                                 @Value("${task-status-write-behind.flush-on-read}") boolean flushOnRead,
+                                 @Value("${task-status-write-behind.flush-on-shutdown}") boolean flushOnShutdown,
+                                 MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushOnRead = flushOnRead;
+        this.flushOnShutdown = flushOnShutdown;
+
+        Gauge.builder("tasks.status.buffer.pending", pending, Map::size).register(meterRegistry);
+        this.coalescedCounter = Counter.builder("tasks.status.buffer.coalesced")
+                .description("Status changes replaced by a later change of the same task before being written")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("tasks.status.buffer.flushed")
+                .description("Tasks whose buffered status was written")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("tasks.status.buffer.failures").register(meterRegistry);
+        this.flushTimer = Timer.builder("tasks.status.buffer.flush").register(meterRegistry);
+    }
+
+    /**
+     * Возвращает, включена ли отложенная запись статусов.
+     *
+     * @return  true, если изменения статуса можно передавать в {@link #submit}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ставит статус задачи в очередь, заменяя еще не записанный статус этой задачи.
+     * Владелец задачи должен быть проверен вызывающим.
+     *
+     * @param id        числовой идентификатор задачи
+     * @param owner     имя пользователя, владельца задачи
+     * @param status    новый статус
+     * @return          true, если статус поставлен в очередь, false если режим выключен или очередь заполнена
+     */
+    public boolean submit(Long id, String owner, TaskStatus status) {
+
+        if (!enabled || (pending.size() >= maxPending && !pending.containsKey(id))) {
+            return false;
+        }
+
+        if (pending.put(id, new PendingStatus(owner, status)) != null) {
+            coalescedCounter.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Записывает отложенный статус задачи перед ее чтением, если включен {@code flush-on-read}.
+     * В транзакции только для чтения статус не записывается, читатель видит последний записанный статус.
+     *
+     * @param id    числовой идентификатор задачи
+     */
+    public void flushForRead(Long id) {
+        if (flushOnRead && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            flush(List.of(id));
+        }
+    }
+
+    /**
+     * Записывает отложенные статусы задач перед их изменением в текущей транзакции.
+     * Строки задач остаются заблокированными до ее завершения.
+     *
+     * @param ids   идентификаторы задач
+     */
+    public void flush(Collection<Long> ids) {
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> pendingIds = ids.stream().filter(pending::containsKey).toList();
+        if (!pendingIds.isEmpty()) {
+            writeTransaction.executeWithoutResult(transaction -> write(claim(pendingIds)));
+        }
+    }
+
+    /**
+     * Записывает все накопленные статусы, по транзакции на каждые {@value #MAX_IDS_PER_UPDATE} задач.
+     * Вызывается раз в {@code task-status-write-behind.window}.
+     */
+    @Scheduled(fixedDelayString = "${task-status-write-behind.window}")
+    public void flushAll() {
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(pending.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_UPDATE));
+                writeTransaction.executeWithoutResult(transaction -> write(claim(chunk)));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to write buffered task statuses, they will be retried", ex);
+        }
+    }
+
+    /**
+     * Записывает очередь при остановке приложения, если включен {@code flush-on-shutdown}.
+     */
+    @Override
+    public void destroy() {
+        if (flushOnShutdown && !pending.isEmpty()) {
+            log.info("Writing {} buffered task statuses on shutdown", pending.size());
+            flushAll();
+        }
+    }
+
+    /**
+     * Блокирует строки задач в текущей транзакции и забирает их статусы из очереди.
+     * Статусы удаленных задач отбрасываются.
+     *
+     * @param ids   идентификаторы задач
+     * @return      статусы существующих задач
+     */
+    private Map<Long, PendingStatus> claim(Collection<Long> ids) {
+
+        Set<Long> existing = new HashSet<>(taskRepository.lockByIds(ids));
+
+        Map<Long, PendingStatus> batch = new HashMap<>();
+        for (Long id : ids) {
+            PendingStatus status = pending.remove(id);
+            if (status != null && existing.contains(id)) {
+                batch.put(id, status);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Записывает статусы в текущей транзакции: по одному UPDATE на владельца и статус.
+     * Если транзакция откатится, статусы возвращаются в очередь, если их не заменили более новые.
+     *
+     * @param batch статусы задач
+     */
+    private void write(Map<Long, PendingStatus> batch) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    flushedCounter.increment(batch.size());
+                } else {
+                    failureCounter.increment();
+                    batch.forEach(pending::putIfAbsent);
+                }
+            }
+        });
+
+        Map<PendingStatus, List<Long>> groups = new LinkedHashMap<>();
+        batch.forEach((id, status) -> groups.computeIfAbsent(status, key -> new ArrayList<>()).add(id));
+
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+        groups.forEach((status, ids) -> {
+            taskRepository.updateStatusByIdsAndOwner(status.status(), ids, status.owner(), now)
+                    .forEach(task -> eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED,
+                            task.getTask().getId(), status.owner(), status.status(), task.getPreviousStatus())));
+        });
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Отложенный статус задачи вместе с ее владельцем.
+     *
+     * @param owner     имя пользователя, владельца задачи
+     * @param status    статус, который нужно записать
+     */
+    private record PendingStatus(String owner, TaskStatus status) {
+    }
+
+}
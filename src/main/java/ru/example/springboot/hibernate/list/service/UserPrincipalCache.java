@@ -0,0 +1,114 @@
+package ru.example.springboot.hibernate.list.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.util.BoundedTtlCache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Кэш данных пользователей, необходимых для аутентификации запроса по JWT:
+ * идентификатор, имя, роль и флаг активации. Пароль и задачи в кэш не попадают.
+ * <p>
+ * Размер кэша и время жизни записей задаются свойствами {@code principal-cache.max-size}
+ * и {@code principal-cache.ttl}. Попадания и промахи публикуются в метрике {@code cache.gets}
+ * с тегом {@code cache=principals}.</p>
+ */
+@Component
+public class UserPrincipalCache {
+
+    private static final String CACHE_NAME = "principals";
+
+    private final BoundedTtlCache<String, UserEntity> cache;
+
+    /**
+     * Создает кэш и регистрирует его метрики.
+     *
+     * @param maxSize       максимальное кол-во пользователей в кэше
+     * @param ttl           время жизни записи
+     * @param meterRegistry реестр метрик
+     */
+    public UserPrincipalCache(@Value("${principal-cache.max-size}") int maxSize,
+                              @Value("${principal-cache.ttl}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+
+        this.cache = new BoundedTtlCache<>(maxSize, ttl);
+
+        FunctionCounter.builder("cache.gets", cache, BoundedTtlCache::hits)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, BoundedTtlCache::misses)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", cache, BoundedTtlCache::evictions)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, BoundedTtlCache::size)
+                .tags("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает данные пользователя из кэша, а при их отсутствии загружает их.
+     *
+     * @param username  имя пользователя
+     * @param loader    функция загрузки пользователя из БД
+     * @return          optional содержащий данные пользователя
+     */
+    public Optional<UserEntity> get(String username, Function<String, Optional<UserEntity>> loader) {
+        return Optional.ofNullable(cache.get(username, key -> loader.apply(key).map(UserPrincipalCache::snapshot).orElse(null)));
+    }
+
+    /**
+     * Удаляет пользователя из кэша сразу и повторно после фиксации текущей транзакции,
+     * чтобы параллельный запрос не успел закэшировать данные до фиксации.
+     *
+     * @param username  имя пользователя
+     */
+    public void evict(String username) {
+
+        cache.invalidate(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Удаляет всех пользователей из кэша.
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Копирует из сущности только данные, необходимые для аутентификации.
+     *
+     * @param user  сущность пользователя
+     * @return      копия пользователя без пароля и задач
+     */
+    private static UserEntity snapshot(UserEntity user) {
+        return UserEntity.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .role(user.getRole())
+                .enabled(user.isEnabled())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+}
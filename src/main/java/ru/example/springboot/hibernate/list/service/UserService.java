@@ -1,6 +1,7 @@
 package ru.example.springboot.hibernate.list.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
@@ -8,6 +9,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
 import ru.example.springboot.hibernate.list.model.TokenDetails;
 import ru.example.springboot.hibernate.list.model.UserEntity;
 import ru.example.springboot.hibernate.list.model.UserRole;
@@ -32,6 +34,10 @@ public class UserService implements UserDetailsService {
     private final PasswordEncoder passwordEncoder;
     /** Содержит методы работы с JSON Web Token (jwt) */
     private final JwtUtil jwtUtil;
+    /** Кэш данных пользователей для аутентификации запросов */
+    private final UserPrincipalCache principalCache;
+    /** Публикует событие удаления задач пользователя для кэшей, счетчиков и других слушателей */
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Возвращает пользователя по имени пользователя.
@@ -45,6 +51,18 @@ public class UserService implements UserDetailsService {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * Возвращает данные пользователя, необходимые для аутентификации запроса: идентификатор,
+     * имя, роль и флаг активации. Данные берутся из кэша, к БД запрос идет только при промахе.
+     *
+     * @param username Имя пользователя
+     * @return optional содержащий данные пользователя без пароля и задач
+     */
+    public Optional<UserEntity> getPrincipalByUsername(String username) {
+
+        return principalCache.get(username, this::getUserByUsername);
+    }
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -81,11 +99,12 @@ public class UserService implements UserDetailsService {
 
     /**
      * Регистрирует нового пользователя.
+     * Пароль хешируется вне транзакции, чтобы ожидание пула хеширования не удерживало соединение с БД;
+     * пользователь сохраняется в собственной короткой транзакции репозитория.
      *
      * @param userEntity объект пользователя, который требуется зарегистрировать
      * @return зарегистрированный объект UserEntity
      */
-    @Transactional
     public UserEntity registerUser(UserEntity userEntity) {
 
         userEntity.setPassword(passwordEncoder.encode(userEntity.getPassword()));
@@ -96,7 +115,10 @@ public class UserService implements UserDetailsService {
             userEntity.setRole(UserRole.USER);
         }
 
-        return userRepository.save(userEntity);
+        UserEntity savedUser = userRepository.save(userEntity);
+        principalCache.evict(savedUser.getUsername());
+
+        return savedUser;
     }
 
     /**
@@ -110,7 +132,9 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Удаляет пользователя из базы по идентификатору.
+     * Удаляет пользователя из базы по идентификатору вместе с его задачами.
+     * Удаление задач публикуется одним событием {@link TaskChangedEvent} на пользователя,
+     * поэтому его кэши и счетчики сбрасываются после фиксации транзакции.
      *
      * @param username идентификатор пользователя
      * @throws IllegalFormatException если пользователь не нашелся по имени
@@ -122,16 +146,20 @@ public class UserService implements UserDetailsService {
             throw new IllegalArgumentException("User not found with id: " + id);
         }
         userRepository.delete(optionalUser.get());
+        principalCache.evict(optionalUser.get().getUsername());
+        eventPublisher.publishEvent(new TaskChangedEvent(TaskChangedEvent.Type.DELETED, null,
+                optionalUser.get().getUsername(), null, null));
     }
 
     /**
      * Аутентифицирует пользователя и возвращает данные токена.
+     * Пользователь читается короткой транзакцией репозитория, пароль проверяется вне транзакции,
+     * чтобы ожидание пула хеширования не удерживало соединение с БД.
      *
      * @param username Имя пользователя
      * @param password Пароль пользователя
      * @return объект TokenDetails, содержащий детали аутентификации и токен
      */
-    @Transactional
     public TokenDetails authenticate(String username, String password) {
 
         Optional<UserEntity> optionalUser = getUserByUsername(username);
@@ -149,14 +177,7 @@ public class UserService implements UserDetailsService {
             throw new UnauthorizedException(String.format("Неверный пароль у пользователя '%s'"), username);
         }
 
-        String jwtoken = jwtUtil.generateToken(user);
-
-        return new TokenDetails(
-                user.getId(),
-                jwtoken,
-                jwtUtil.extractIssued(jwtoken),
-                jwtUtil.extractExpiration(jwtoken));
-
+        return jwtUtil.issueToken(user);
     }
 
 }
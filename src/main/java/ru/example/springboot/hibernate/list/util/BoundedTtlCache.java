@@ -0,0 +1,186 @@
+package ru.example.springboot.hibernate.list.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Потокобезопасный кэш с ограниченным размером и временем жизни записей.
+ * <p>
+ * Не использует блокировки: записи хранятся в ConcurrentHashMap, просроченные записи
+ * удаляются при чтении. Когда размер достигает предела, сначала удаляются просроченные записи,
+ * а затем, если этого недостаточно, произвольные записи, пока не освободится 10% емкости.</p>
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Создает кэш.
+     *
+     * @param maxSize   максимальное кол-во записей
+     * @param ttl       время жизни записи по умолчанию
+     */
+    public BoundedTtlCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key   ключ
+     * @return      значение или null, если записи нет или она просрочена
+     */
+    public V get(K key) {
+
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Возвращает значение по ключу, а при его отсутствии загружает и кэширует его.
+     * Загрузка выполняется без блокировок, поэтому при одновременном промахе
+     * значение может быть загружено несколько раз. Значение null не кэшируется.
+     *
+     * @param key       ключ
+     * @param loader    функция загрузки значения
+     * @return          значение или null, если загрузчик вернул null
+     */
+    public V get(K key, Function<K, V> loader) {
+
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Кэширует значение со временем жизни по умолчанию.
+     *
+     * @param key   ключ
+     * @param value значение
+     */
+    public void put(K key, V value) {
+        put(key, value, ttlNanos);
+    }
+
+    /**
+     * Кэширует значение с указанным временем жизни.
+     *
+     * @param key       ключ
+     * @param value     значение
+     * @param ttlNanos  время жизни записи в наносекундах
+     */
+    public void put(K key, V value, long ttlNanos) {
+
+        if (ttlNanos <= 0) {
+            return;
+        }
+
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict();
+        }
+
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * Удаляет запись по ключу.
+     *
+     * @param key   ключ
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Удаляет все записи.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /** @return кол-во записей, включая еще не удаленные просроченные */
+    public int size() {
+        return entries.size();
+    }
+
+    /** @return кол-во попаданий с момента создания */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** @return кол-во промахов с момента создания */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** @return кол-во записей, вытесненных из-за ограничения размера */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Освобождает место в кэше: удаляет просроченные записи, а если их недостаточно,
+     * то произвольные записи, пока размер не станет меньше 90% емкости.
+     */
+    private void evict() {
+
+        long now = System.nanoTime();
+        int target = maxSize - Math.max(1, maxSize / 10);
+
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Запись кэша.
+     *
+     * @param value         значение
+     * @param expiresAt     момент истечения в единицах System.nanoTime()
+     * @param <V>           тип значения
+     */
+    private record Entry<V>(V value, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+}
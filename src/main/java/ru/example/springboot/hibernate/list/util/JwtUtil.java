@@ -3,12 +3,20 @@ package ru.example.springboot.hibernate.list.util;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
+import ru.example.springboot.hibernate.list.model.TokenDetails;
 import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.VerifiedToken;
 
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
@@ -28,7 +36,60 @@ public class JwtUtil {
     private String issuer;
     @Value("${jwt.secret}")
     private String secret;
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private Integer verifiedCacheMaxSize;
+    @Value("${jwt.verified-cache.ttl:PT30S}")
+    private Duration verifiedCacheTtl;
 
+    /** Ключ подписи, вычисляется один раз при старте. */
+    private Key signingKey;
+    /** Проверенные токены по SHA-256 дайджесту токена. */
+    private BoundedTtlCache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * Вычисляет ключ подписи и создает кэш проверенных токенов.
+     * Ключ совпадает с прежним Base64-представлением секрета, поэтому ранее выданные токены остаются валидными.
+     * Кэш отключается, если jwt.verified-cache.ttl равен нулю.
+     */
+    @PostConstruct
+    void init() {
+        signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        if (!verifiedCacheTtl.isZero()) {
+            verifiedTokens = new BoundedTtlCache<>(verifiedCacheMaxSize, verifiedCacheTtl);
+        }
+    }
+
+    /**
+     * Разбирает токен и проверяет его подпись и срок действия за один проход.
+     * Результат кэшируется на время jwt.verified-cache.ttl, но не дольше срока действия токена,
+     * поэтому повторные запросы с тем же токеном не разбирают и не проверяют его заново.
+     *
+     * @param token JWT-токен
+     * @return проверенные утверждения токена
+     * @throws io.jsonwebtoken.JwtException если токен поврежден, подпись неверна или срок действия истек
+     */
+    public VerifiedToken verify(String token) {
+
+        if (verifiedTokens == null) {
+            return toVerifiedToken(extractAllClaims(token));
+        }
+
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedToken verifiedToken = verifiedTokens.get(digest);
+        if (verifiedToken != null && !verifiedToken.isExpired(now)) {
+            return verifiedToken;
+        }
+
+        verifiedToken = toVerifiedToken(extractAllClaims(token));
+
+        long ttlNanos = Math.min(verifiedCacheTtl.toNanos(),
+                Duration.ofMillis(verifiedToken.getExpiresAt().getTime() - now).toNanos());
+        verifiedTokens.put(digest, verifiedToken, ttlNanos);
+
+        return verifiedToken;
+    }
 
     /**
      * Извлекает имя пользователя из токена.
@@ -81,11 +142,43 @@ public class JwtUtil {
      */
     public Claims extractAllClaims(String token) {
         return Jwts.parser()
-                .setSigningKey(Base64.getEncoder().encodeToString(secret.getBytes(StandardCharsets.UTF_8)))
+                .setSigningKey(signingKey)
                 .parseClaimsJws(token)
                 .getBody();
     }
 
+    /**
+     * Преобразует утверждения токена в неизменяемый объект.
+     *
+     * @param claims утверждения проверенного токена
+     * @return проверенные утверждения токена
+     */
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                userId == null ? null : userId.longValue(),
+                claims.getIssuedAt(),
+                claims.getExpiration());
+    }
+
+    /**
+     * Вычисляет SHA-256 дайджест токена, чтобы не хранить сами токены в кэше.
+     *
+     * @param token JWT-токен
+     * @return дайджест в Base64
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Проверяет, истек ли срок действия токена.
      *
@@ -103,12 +196,29 @@ public class JwtUtil {
      * @return сгенерированный JWT-токен
      */
     public String generateToken(UserEntity user) {
+        return issueToken(user).getToken();
+    }
+
+    /**
+     * Выпускает токен для заданного пользователя вместе с временем выпуска и истечения.
+     * Время берется из утверждений, с которыми токен подписан, поэтому токен не нужно разбирать заново.
+     *
+     * @param user объект пользователя, для которого создается токен
+     * @return детали выпущенного токена
+     */
+    public TokenDetails issueToken(UserEntity user) {
         Map<String, Object> claims = new HashMap<>() {{
             put("role", user.getRole());
             put("userId", user.getId());
         }};
 
-        return createToken(claims, user.getUsername());
+        // JWT хранит время в секундах, поэтому детали токена округляются так же
+        long curentTimeInMilles = System.currentTimeMillis() / 1000L * 1000L;
+        Date createdDate = new Date(curentTimeInMilles);
+        Date expiratedDate = new Date(curentTimeInMilles + expirationInSeconds * 1000L);
+
+        return new TokenDetails(user.getId(), createToken(claims, user.getUsername(), createdDate, expiratedDate),
+                createdDate, expiratedDate);
     }
 
     /**
@@ -116,21 +226,18 @@ public class JwtUtil {
      *
      * @param claims список утверждений (claims)
      * @param subject субъект токена (имя пользователя)
+     * @param createdDate время выпуска токена
+     * @param expiratedDate время истечения срока действия токена
      * @return созданный токен в виде строки
      */
-    private String createToken(Map<String, Object> claims, String subject) {
-        Long curentTimeInMilles = System.currentTimeMillis();
-        Long expirationTimeInMilles = expirationInSeconds * 1000L;
-        Date createdDate = new Date(curentTimeInMilles);
-        Date expiratedDate = new Date(curentTimeInMilles + expirationTimeInMilles);
-
+    private String createToken(Map<String, Object> claims, String subject, Date createdDate, Date expiratedDate) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setIssuer(issuer)
                 .setSubject(subject)
                 .setIssuedAt(createdDate)
                 .setExpiration(expiratedDate)
-                .signWith(SignatureAlgorithm.HS256, Base64.getEncoder().encodeToString(secret.getBytes(StandardCharsets.UTF_8)))
+                .signWith(SignatureAlgorithm.HS256, signingKey)
                 .compact();
     }
 
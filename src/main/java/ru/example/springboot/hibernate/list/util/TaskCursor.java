@@ -0,0 +1,97 @@
+package ru.example.springboot.hibernate.list.util;
+
+import ru.example.springboot.hibernate.list.model.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Утилита для кодирования курсора постраничного вывода задач.
+ * Курсор непрозрачен для клиента и содержит id последней задачи на странице,
+ * а курсор синхронизации изменений - время в микросекундах, после которого выбираются изменения.
+ */
+public final class TaskCursor {
+
+    private static final String PREFIX = "id:";
+    private static final String TIME_PREFIX = "ts:";
+
+    private TaskCursor() {
+    }
+
+    /**
+     * Кодирует id последней задачи страницы в курсор.
+     *
+     * @param lastId    id последней задачи на странице
+     * @return          курсор в виде строки
+     */
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор в id задачи, после которой начинается страница.
+     *
+     * @param cursor    курсор, полученный от клиента; пустой курсор означает первую страницу
+     * @return          id задачи, 0 для первой страницы
+     * @throws BadRequestException если курсор поврежден
+     */
+    public static Long decode(String cursor) throws BadRequestException {
+
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Кодирует время, после которого нужно выбирать изменения, в курсор синхронизации.
+     *
+     * @param since время с точностью до микросекунд
+     * @return      курсор в виде строки
+     */
+    public static String encodeTime(Instant since) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, since);
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((TIME_PREFIX + micros).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор синхронизации во время, после которого нужно выбирать изменения.
+     *
+     * @param cursor    курсор, полученный от клиента
+     * @return          время или null, если курсор пустой
+     * @throws BadRequestException если курсор поврежден
+     */
+    public static Instant decodeTime(String cursor) throws BadRequestException {
+
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(TIME_PREFIX)) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+            return Instant.EPOCH.plus(Long.parseLong(value.substring(TIME_PREFIX.length())), ChronoUnit.MICROS);
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException ex) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+}
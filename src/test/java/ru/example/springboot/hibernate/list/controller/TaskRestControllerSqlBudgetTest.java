@@ -0,0 +1,159 @@
+package ru.example.springboot.hibernate.list.controller;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.UserRole;
+import ru.example.springboot.hibernate.list.monitoring.SqlBudget;
+import ru.example.springboot.hibernate.list.monitoring.SqlStatsResponseAdvice;
+import ru.example.springboot.hibernate.list.util.JwtUtil;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Превышение @SqlBudget в этих тестах приводит к ошибке запроса (sql-budget.fail-on-exceed=true).
+ * {@link SqlBudgetStubController} проверяет, что превышение бюджета и повторение запросов обнаруживаются.
+ */
+@SpringBootTest(properties = "sql-budget.fail-on-exceed=true")
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(OutputCaptureExtension.class)
+class TaskRestControllerSqlBudgetTest {
+
+	private static final String STUB_PATH = "/api/v1/sql-budget-stub";
+
+	@TestConfiguration
+	static class StubConfig {
+
+		@Bean
+		SqlBudgetStubController sqlBudgetStubController(EntityManager entityManager) {
+			return new SqlBudgetStubController(entityManager);
+		}
+	}
+
+	@RestController
+	static class SqlBudgetStubController {
+
+		private final EntityManager entityManager;
+
+		SqlBudgetStubController(EntityManager entityManager) {
+			this.entityManager = entityManager;
+		}
+
+		@SqlBudget(1)
+		@GetMapping(STUB_PATH + "/over-budget")
+		public int overBudget() {
+			return select(2);
+		}
+
+		@GetMapping(STUB_PATH + "/repeated")
+		public int repeated() {
+			return select(5);
+		}
+
+		private int select(int times) {
+			for (int i = 0; i < times; i++) {
+				entityManager.createNativeQuery("select 1").getSingleResult();
+			}
+			return times;
+		}
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private String token;
+
+	private Task task;
+
+	@BeforeEach
+	void createUserWithTasks() {
+		UserEntity user = new UserEntity("budget-" + UUID.randomUUID(), "password");
+		user.setEnabled(true);
+		user.setRole(UserRole.USER);
+		entityManager.persist(user);
+		for (int i = 0; i < 10; i++) {
+			task = Task.builder()
+					.description("Task number " + i)
+					.status(TaskStatus.TODO)
+					.user(user)
+					.build();
+			entityManager.persist(task);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		token = jwtUtil.generateToken(user);
+	}
+
+	@Test
+	void getAllTasksStaysWithinSqlBudget() throws Exception {
+		mockMvc.perform(get("/api/v1/tasks").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(SqlStatsResponseAdvice.STATEMENTS_HEADER));
+	}
+
+	@Test
+	void getTaskStaysWithinSqlBudget() throws Exception {
+		mockMvc.perform(get("/api/v1/tasks/{id}", task.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(SqlStatsResponseAdvice.STATEMENTS_HEADER));
+	}
+
+	@Test
+	void exceedingSqlBudgetFailsRequest() throws Exception {
+		mockMvc.perform(get(STUB_PATH + "/over-budget")
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isInternalServerError())
+				.andExpect(jsonPath("$.errorCode").value("SQL_BUDGET_EXCEEDED"))
+				.andExpect(header().string(SqlStatsResponseAdvice.STATEMENTS_HEADER, "2"));
+	}
+
+	@Test
+	void repeatedStatementIsReportedAsPossibleNPlusOne(CapturedOutput output) throws Exception {
+		mockMvc.perform(get(STUB_PATH + "/repeated").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().string(SqlStatsResponseAdvice.STATEMENTS_HEADER, "5"));
+
+		assertTrue(output.getOut().contains("possible N+1, statement executed 5 times"));
+	}
+
+	@Test
+	void conditionalGetOfMissingTaskIsNotFound() throws Exception {
+		mockMvc.perform(get("/api/v1/tasks/{id}", Long.MAX_VALUE)
+						.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+						.header(HttpHeaders.IF_NONE_MATCH, "*"))
+				.andExpect(status().isNotFound());
+	}
+
+}
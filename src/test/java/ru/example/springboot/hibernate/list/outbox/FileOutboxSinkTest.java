@@ -0,0 +1,52 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOutboxSinkTest {
+
+	private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void batchesAreAppendedInDeliveryOrder() throws Exception {
+		Path file = directory.resolve("outbox.ndjson");
+		FileOutboxSink sink = new FileOutboxSink(file, objectMapper);
+
+		sink.deliver(List.of(event(1L, TaskChangedEvent.Type.CREATED, TaskStatus.TODO),
+				event(2L, TaskChangedEvent.Type.UPDATED, TaskStatus.IN_PROGRESS)));
+		sink.deliver(List.of(event(3L, TaskChangedEvent.Type.DELETED, null)));
+
+		List<Long> ids = new ArrayList<>();
+		List<String> types = new ArrayList<>();
+		for (String line : Files.readAllLines(file)) {
+			JsonNode node = objectMapper.readTree(line);
+			ids.add(node.get("id").asLong());
+			types.add(node.get("type").asText());
+		}
+
+		assertEquals(List.of(1L, 2L, 3L), ids);
+		assertEquals(List.of("CREATED", "UPDATED", "DELETED"), types);
+	}
+
+	private static TaskOutboxEvent event(Long id, TaskChangedEvent.Type type, TaskStatus status) {
+		return new TaskOutboxEvent(id, 42L, "alice", type, status, null, Instant.now());
+	}
+
+}
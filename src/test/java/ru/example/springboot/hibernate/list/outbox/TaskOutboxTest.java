@@ -0,0 +1,164 @@
+package ru.example.springboot.hibernate.list.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskOutboxEvent;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.repository.TaskOutboxRepository;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.repository.UserRepository;
+import ru.example.springboot.hibernate.list.service.TaskService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Интервал опроса увеличен, чтобы события доставлялись только явным вызовом {@link TaskOutboxRelay#relay()}.
+ */
+@SpringBootTest(properties = "task-outbox.poll-interval=PT1H")
+class TaskOutboxTest {
+
+	private static final Path SINK_FILE = createSinkFile();
+
+	@DynamicPropertySource
+	static void fileSink(DynamicPropertyRegistry registry) {
+		registry.add("task-outbox.file-sink.path", SINK_FILE::toString);
+	}
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private TaskOutboxRelay relay;
+
+	@Autowired
+	private TaskOutboxRepository outboxRepository;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private UserEntity user;
+
+	@BeforeEach
+	void createUser() {
+		user = userRepository.save(new UserEntity("outbox-" + UUID.randomUUID(), "password"));
+	}
+
+	@AfterEach
+	void deleteUser() {
+		outboxRepository.deleteAll(eventsOf(user.getUsername()));
+		taskRepository.deleteAll(taskRepository.findAll().stream()
+				.filter(task -> task.getUser().getId().equals(user.getId()))
+				.toList());
+		userRepository.deleteById(user.getId());
+	}
+
+	@Test
+	void rolledBackChangesWriteNoEvents() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Task task = taskService.save(newTask());
+			taskService.update(task.getId(), user.getUsername(), TaskStatus.DONE);
+			status.setRollbackOnly();
+		});
+
+		assertTrue(eventsOf(user.getUsername()).isEmpty());
+	}
+
+	@Test
+	void committedChangesWriteEventsInIdOrder() {
+		Long taskId = createAndChangeTask();
+
+		List<TaskOutboxEvent> events = eventsOf(user.getUsername());
+
+		assertEquals(List.of(TaskChangedEvent.Type.CREATED, TaskChangedEvent.Type.UPDATED, TaskChangedEvent.Type.UPDATED),
+				events.stream().map(TaskOutboxEvent::getType).toList());
+		assertEquals(List.of(TaskStatus.TODO, TaskStatus.IN_PROGRESS, TaskStatus.DONE),
+				events.stream().map(TaskOutboxEvent::getStatus).toList());
+		assertTrue(events.stream().allMatch(event -> taskId.equals(event.getTaskId())));
+		for (int i = 1; i < events.size(); i++) {
+			assertTrue(events.get(i - 1).getId() < events.get(i).getId());
+		}
+	}
+
+	@Test
+	void relayDeliversEventsToFileAndDeletesThem() throws IOException {
+		createAndChangeTask();
+		List<Long> written = eventsOf(user.getUsername()).stream().map(TaskOutboxEvent::getId).toList();
+
+		relay.relay();
+
+		List<Long> delivered = new ArrayList<>();
+		for (String line : Files.readAllLines(SINK_FILE)) {
+			JsonNode node = objectMapper.readTree(line);
+			if (user.getUsername().equals(node.get("owner").asText())) {
+				delivered.add(node.get("id").asLong());
+			}
+		}
+
+		assertEquals(written, delivered);
+		assertTrue(eventsOf(user.getUsername()).isEmpty());
+	}
+
+	private Long createAndChangeTask() {
+		return transactionTemplate.execute(status -> {
+			Task task = taskService.save(newTask());
+			taskService.update(task.getId(), user.getUsername(), TaskStatus.IN_PROGRESS);
+			taskService.update(task.getId(), user.getUsername(), TaskStatus.DONE);
+			return task.getId();
+		});
+	}
+
+	private Task newTask() {
+		return Task.builder()
+				.description("Task with outbox events")
+				.status(TaskStatus.TODO)
+				.user(user)
+				.build();
+	}
+
+	private List<TaskOutboxEvent> eventsOf(String owner) {
+		return outboxRepository.findAll().stream()
+				.filter(event -> owner.equals(event.getOwner()))
+				.sorted((first, second) -> Long.compare(first.getId(), second.getId()))
+				.toList();
+	}
+
+	private static Path createSinkFile() {
+		try {
+			Path file = Files.createTempFile("task-outbox", ".ndjson");
+			file.toFile().deleteOnExit();
+			return file;
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+}
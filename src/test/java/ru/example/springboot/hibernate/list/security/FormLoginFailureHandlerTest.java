@@ -0,0 +1,45 @@
+package ru.example.springboot.hibernate.list.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import ru.example.springboot.hibernate.list.model.exception.ServiceUnavailableException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FormLoginFailureHandlerTest {
+
+	private final FormLoginFailureHandler failureHandler = new FormLoginFailureHandler("/login?error=true");
+
+	@Test
+	void overloadedPasswordHashingIsServiceUnavailableWithRetryAfter() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ServiceUnavailableException unavailable = new ServiceUnavailableException("Сервис перегружен", 3);
+
+		failureHandler.onAuthenticationFailure(request, response,
+				new InternalAuthenticationServiceException(unavailable.getMessage(), unavailable));
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+		assertEquals("3", response.getHeader(HttpHeaders.RETRY_AFTER));
+		assertEquals("Сервис перегружен", request.getAttribute(FormLoginFailureHandler.ERROR_MESSAGE_ATTRIBUTE));
+		assertNull(response.getRedirectedUrl());
+	}
+
+	@Test
+	void badCredentialsRedirectToLoginPage() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		failureHandler.onAuthenticationFailure(request, response, new BadCredentialsException("Bad credentials"));
+
+		assertEquals("/login?error=true", response.getRedirectedUrl());
+		assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+	}
+
+}
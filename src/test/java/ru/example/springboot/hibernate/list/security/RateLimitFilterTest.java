@@ -0,0 +1,62 @@
+package ru.example.springboot.hibernate.list.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTest {
+
+	private static final int CAPACITY = 2;
+
+	private final RateLimitFilter filter = new RateLimitFilter(new TokenBucketRateLimiter(true, 100,
+			Duration.ofMinutes(10), CAPACITY, 1, CAPACITY, 1, CAPACITY, 1, new SimpleMeterRegistry()), "api/v1");
+
+	@Test
+	void requestsOverCapacityAreRejectedWithRetryAfter() throws Exception {
+		for (int i = 0; i < CAPACITY; i++) {
+			MockFilterChain chain = new MockFilterChain();
+			MockHttpServletResponse response = filter("/api/v1/auth/login", "10.0.0.1", chain);
+
+			assertEquals(HttpStatus.OK.value(), response.getStatus());
+			assertNotNull(chain.getRequest());
+		}
+
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = filter("/api/v1/auth/login", "10.0.0.1", chain);
+
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+		assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+		assertTrue(response.getContentAsString().contains("TOO_MANY_REQUESTS"));
+		assertNull(chain.getRequest());
+	}
+
+	@Test
+	void routeGroupsAndClientAddressesHaveSeparateLimits() throws Exception {
+		for (int i = 0; i <= CAPACITY; i++) {
+			filter("/api/v1/auth/login", "10.0.0.1", new MockFilterChain());
+		}
+
+		assertEquals(HttpStatus.OK.value(), filter("/api/v1/tasks", "10.0.0.1", new MockFilterChain()).getStatus());
+		assertEquals(HttpStatus.OK.value(), filter("/api/v1/auth/login", "10.0.0.2", new MockFilterChain()).getStatus());
+	}
+
+	private MockHttpServletResponse filter(String uri, String remoteAddr, MockFilterChain chain) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+		request.setRemoteAddr(remoteAddr);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+}
@@ -0,0 +1,75 @@
+package ru.example.springboot.hibernate.list.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.example.springboot.hibernate.list.security.TokenBucketRateLimiter.RouteGroup;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+	private static final int CAPACITY = 3;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void burstUpToCapacityThenRejectsWithRetryDelay() {
+		TokenBucketRateLimiter rateLimiter = rateLimiter(100);
+
+		for (int i = 0; i < CAPACITY; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.1"));
+		}
+		long waitNanos = rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.1");
+
+		assertTrue(waitNanos > 0 && waitNanos <= Duration.ofSeconds(1).toNanos());
+		assertEquals(1, meterRegistry.counter("rate.limit.rejected", "group", "auth").count());
+	}
+
+	@Test
+	void bucketsAreSeparatePerClientAndRouteGroup() {
+		TokenBucketRateLimiter rateLimiter = rateLimiter(100);
+
+		for (int i = 0; i < CAPACITY; i++) {
+			rateLimiter.tryAcquire(RouteGroup.AUTH, "user:alice");
+		}
+
+		assertTrue(rateLimiter.tryAcquire(RouteGroup.AUTH, "user:alice") > 0);
+		assertEquals(0, rateLimiter.tryAcquire(RouteGroup.AUTH, "user:bob"));
+		assertEquals(0, rateLimiter.tryAcquire(RouteGroup.TASKS, "user:alice"));
+	}
+
+	@Test
+	void clientsOverBucketLimitAreLimitedInOverflowBuckets() {
+		TokenBucketRateLimiter rateLimiter = rateLimiter(1);
+
+		rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.1");
+		for (int i = 0; i < CAPACITY; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.2"));
+		}
+
+		assertTrue(rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.2") > 0);
+		assertEquals(1.0, meterRegistry.get("rate.limit.buckets").gauge().value());
+	}
+
+	@Test
+	void exhaustedOverflowBucketDoesNotLockOutOtherClients() {
+		TokenBucketRateLimiter rateLimiter = rateLimiter(1);
+
+		rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.1");
+		for (int i = 0; i <= CAPACITY; i++) {
+			rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.2");
+		}
+
+		assertEquals(0, rateLimiter.tryAcquire(RouteGroup.AUTH, "ip:10.0.0.3"));
+		assertEquals(0, rateLimiter.tryAcquire(RouteGroup.AUTH, "user:alice"));
+	}
+
+	private TokenBucketRateLimiter rateLimiter(int maxBuckets) {
+		return new TokenBucketRateLimiter(true, maxBuckets, Duration.ofMinutes(10),
+				CAPACITY, 1, CAPACITY, 1, CAPACITY, 1, meterRegistry);
+	}
+
+}
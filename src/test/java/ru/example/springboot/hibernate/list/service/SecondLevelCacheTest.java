@@ -0,0 +1,120 @@
+package ru.example.springboot.hibernate.list.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "second-level-cache.entity-ttl=PT2S")
+class SecondLevelCacheTest {
+
+	private static final int READS = 10;
+	private static final double MIN_HIT_RATIO = 0.8;
+	private static final Duration ENTITY_TTL = Duration.ofSeconds(2);
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Statistics statistics;
+	private UserEntity user;
+	private Task task;
+
+	@BeforeEach
+	void createTask() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+
+		user = userRepository.save(new UserEntity("l2-" + UUID.randomUUID(), "password"));
+		task = taskRepository.save(Task.builder()
+				.description("Cached task")
+				.status(TaskStatus.TODO)
+				.user(user)
+				.build());
+		statistics.clear();
+	}
+
+	@AfterEach
+	void deleteTask() {
+		taskRepository.deleteById(task.getId());
+		userRepository.deleteById(user.getId());
+		statistics.setStatisticsEnabled(false);
+	}
+
+	@Test
+	void repeatedTaskReadsHitEntityCache() {
+		for (int i = 0; i < READS; i++) {
+			taskService.findById(task.getId());
+		}
+
+		assertTrue(hitRatio(statistics.getDomainDataRegionStatistics("task")) >= MIN_HIT_RATIO);
+	}
+
+	@Test
+	void repeatedUserLookupsHitQueryCache() {
+		for (int i = 0; i < READS; i++) {
+			userService.getUserByUsername(user.getUsername());
+		}
+
+		assertTrue(hitRatio(statistics.getQueryRegionStatistics("default-query-results-region")) >= MIN_HIT_RATIO);
+	}
+
+	@Test
+	void updatesAreVisibleToNextRead() {
+		taskService.findById(task.getId());
+		taskService.findAllByUserUsername(user.getUsername());
+
+		taskService.update(task.getId(), user.getUsername(), TaskStatus.DONE);
+
+		assertEquals(TaskStatus.DONE, taskService.findById(task.getId()).getStatus());
+		assertEquals(TaskStatus.DONE, taskService.findAllByUserUsername(user.getUsername()).getFirst().getStatus());
+	}
+
+	@Test
+	void outOfBandChangesAreVisibleAfterEntityTtl() throws InterruptedException {
+		taskService.findById(task.getId());
+
+		jdbcTemplate.update("update tasks set description = ? where id = ?", "Changed out of band", task.getId());
+
+		assertEquals("Cached task", taskService.findById(task.getId()).getDescription());
+		Thread.sleep(ENTITY_TTL.plusMillis(500).toMillis());
+		assertEquals("Changed out of band", taskService.findById(task.getId()).getDescription());
+	}
+
+	private static double hitRatio(CacheRegionStatistics region) {
+		long reads = region.getHitCount() + region.getMissCount();
+		return reads == 0 ? 0 : (double) region.getHitCount() / reads;
+	}
+
+}
@@ -0,0 +1,106 @@
+package ru.example.springboot.hibernate.list.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.example.springboot.hibernate.list.model.TaskChangedEvent;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskListCacheTest {
+
+	private static final String OWNER = "alice";
+	private static final int READERS = 4;
+	private static final int WRITES = 2000;
+
+	/** Состояние "БД": последний зафиксированный список задач пользователя. */
+	private final AtomicReference<List<TaskDto>> committed = new AtomicReference<>(tasksOfVersion(0));
+
+	/** Загрузка из "БД" с задержкой, чтобы чтение часто пересекалось с фиксацией. */
+	private final Function<String, List<TaskDto>> slowLoader = owner -> {
+		List<TaskDto> snapshot = committed.get();
+		LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(50_000));
+		return snapshot;
+	};
+
+	@Test
+	void writerAlwaysReadsItsOwnWrites() throws Exception {
+		TaskListCache cache = newCache(DataSize.ofMegabytes(1));
+		ExecutorService executor = Executors.newFixedThreadPool(READERS);
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Future<?>> readers = new ArrayList<>(READERS);
+
+		for (int i = 0; i < READERS; i++) {
+			readers.add(executor.submit(() -> {
+				while (!stop.get()) {
+					cache.get(OWNER, slowLoader);
+				}
+			}));
+		}
+
+		try {
+			for (long version = 1; version <= WRITES; version++) {
+				// фиксация транзакции, затем слушатель после фиксации в том же потоке
+				committed.set(tasksOfVersion(version));
+				cache.onTaskChanged(new TaskChangedEvent(TaskChangedEvent.Type.UPDATED, 1L, OWNER, TaskStatus.DONE, null));
+
+				long seen = cache.get(OWNER, slowLoader).getFirst().getVersion();
+				assertTrue(seen >= version, "read version " + seen + " after writing " + version);
+			}
+		} finally {
+			stop.set(true);
+			for (Future<?> reader : readers) {
+				reader.get();
+			}
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void repeatedReadsAreServedFromMemory() {
+		TaskListCache cache = newCache(DataSize.ofMegabytes(1));
+
+		List<TaskDto> first = cache.get(OWNER, owner -> committed.get());
+		List<TaskDto> second = cache.get(OWNER, owner -> {
+			throw new AssertionError("loader must not be called on a hit");
+		});
+
+		assertSame(first, second);
+	}
+
+	@Test
+	void listsOverWeightLimitAreNotCached() {
+		TaskListCache cache = newCache(DataSize.ofBytes(64));
+		int[] loads = new int[1];
+
+		cache.get(OWNER, owner -> { loads[0]++; return committed.get(); });
+		cache.get(OWNER, owner -> { loads[0]++; return committed.get(); });
+
+		assertEquals(2, loads[0]);
+	}
+
+	private static TaskListCache newCache(DataSize maxWeight) {
+		return new TaskListCache(100, maxWeight, Duration.ofMinutes(5), new SimpleMeterRegistry());
+	}
+
+	private static List<TaskDto> tasksOfVersion(long version) {
+		return List.of(new TaskDto(1L, "Task description", TaskStatus.TODO, OWNER, version));
+	}
+
+}
@@ -0,0 +1,141 @@
+package ru.example.springboot.hibernate.list.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskPatchEngineTest {
+
+	private static final String DESCRIPTION = "Task to patch";
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private final TaskPatchEngine patchEngine = new TaskPatchEngine(objectMapper);
+
+	private final UserEntity user = new UserEntity("patch-user", "password");
+
+	@Test
+	void replaceStatusIsAppliedToFields() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"DONE\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals(TaskStatus.DONE, task.getStatus());
+		assertEquals(DESCRIPTION, task.getDescription());
+	}
+
+	@Test
+	void addStatusAndDescriptionAreAppliedToFields() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[" +
+				"{\"op\":\"add\",\"path\":\"/status\",\"value\":\"IN_PROGRESS\"}," +
+				"{\"op\":\"add\",\"path\":\"/description\",\"value\":\"Added description\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals(TaskStatus.IN_PROGRESS, task.getStatus());
+		assertEquals("Added description", task.getDescription());
+	}
+
+	@Test
+	void replaceDescriptionIsAppliedToFields() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(
+				patch("[{\"op\":\"replace\",\"path\":\"/description\",\"value\":\"New description\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals("New description", task.getDescription());
+		assertEquals(TaskStatus.IN_PROGRESS, task.getStatus());
+	}
+
+	@Test
+	void removeStatusResetsItToTodo() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[{\"op\":\"remove\",\"path\":\"/status\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals(TaskStatus.TODO, task.getStatus());
+	}
+
+	@Test
+	void removeDescriptionFallsBackToTree() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[{\"op\":\"remove\",\"path\":\"/description\"}]"), task);
+
+		assertSame(task, patched);
+		assertNull(task.getDescription());
+	}
+
+	@Test
+	void identityFieldsAreNotChangedByPatch() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[" +
+				"{\"op\":\"replace\",\"path\":\"/id\",\"value\":42}," +
+				"{\"op\":\"replace\",\"path\":\"/version\",\"value\":7}," +
+				"{\"op\":\"replace\",\"path\":\"/description\",\"value\":\"New description\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals(1L, task.getId());
+		assertEquals(1L, task.getVersion());
+		assertSame(user, task.getUser());
+		assertEquals("New description", task.getDescription());
+	}
+
+	@Test
+	void unsupportedOperationFallsBackToTree() throws Exception {
+		Task task = task();
+
+		Task patched = patchEngine.apply(patch("[" +
+				"{\"op\":\"test\",\"path\":\"/status\",\"value\":\"IN_PROGRESS\"}," +
+				"{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"DONE\"}]"), task);
+
+		assertSame(task, patched);
+		assertEquals(TaskStatus.DONE, task.getStatus());
+	}
+
+	@Test
+	void rejectedPatchLeavesTaskUntouched() throws Exception {
+		Task task = task();
+		JsonPatch patch = patch("[" +
+				"{\"op\":\"replace\",\"path\":\"/description\",\"value\":\"New description\"}," +
+				"{\"op\":\"replace\",\"path\":\"/status\",\"value\":\"UNKNOWN\"}]");
+
+		assertFalse(patchEngine.applyToFields(patch, task));
+		assertThrows(IOException.class, () -> patchEngine.apply(patch, task));
+
+		assertEquals(DESCRIPTION, task.getDescription());
+		assertEquals(TaskStatus.IN_PROGRESS, task.getStatus());
+	}
+
+	private Task task() {
+		return Task.builder()
+				.id(1L)
+				.description(DESCRIPTION)
+				.status(TaskStatus.IN_PROGRESS)
+				.version(1L)
+				.user(user)
+				.build();
+	}
+
+	private JsonPatch patch(String json) throws IOException {
+		return JsonPatch.fromJson(objectMapper.readTree(json));
+	}
+
+}
@@ -0,0 +1,121 @@
+package ru.example.springboot.hibernate.list.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.model.exception.PreconditionFailedException;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+@SpringBootTest
+class TaskServiceConcurrencyTest {
+
+	private static final int THREADS = 8;
+	private static final int UPDATES_PER_THREAD = 25;
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private UserEntity user;
+	private Task task;
+
+	@BeforeEach
+	void createTask() {
+		user = userRepository.save(new UserEntity("cas-" + UUID.randomUUID(), "password"));
+		task = taskRepository.save(Task.builder()
+				.description(counterDescription(0))
+				.status(TaskStatus.TODO)
+				.user(user)
+				.build());
+	}
+
+	@AfterEach
+	void deleteTask() {
+		taskRepository.deleteById(task.getId());
+		userRepository.deleteById(user.getId());
+	}
+
+	@Test
+	void updateWithStaleVersionIsRejected() {
+		Long version = taskService.findVersionById(task.getId());
+		Task changed = Task.builder().description(counterDescription(1)).status(TaskStatus.DONE).build();
+
+		taskService.update(task.getId(), user.getUsername(), changed, version);
+
+		assertThrows(PreconditionFailedException.class,
+				() -> taskService.update(task.getId(), user.getUsername(), changed, version));
+	}
+
+	@Test
+	void concurrentRetryingUpdatesLoseNothing() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger attempts = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>(THREADS);
+
+		for (int i = 0; i < THREADS; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int n = 0; n < UPDATES_PER_THREAD; n++) {
+					taskService.updateWithRetry(task.getId(), user.getUsername(), current -> {
+						attempts.incrementAndGet();
+						current.setDescription(counterDescription(parseCounter(current.getDescription()) + 1));
+						return current;
+					}, Integer.MAX_VALUE);
+				}
+				return null;
+			}));
+		}
+
+		long startedAt = System.nanoTime();
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsedNanos = System.nanoTime() - startedAt;
+		executor.shutdown();
+
+		int total = THREADS * UPDATES_PER_THREAD;
+		TaskDto result = taskService.findDtoById(task.getId());
+		String throughput = "%d threads, %d updates in %d ms (%.1f updates/s), %d attempts (%d retries)".formatted(
+				THREADS, total, elapsedNanos / 1_000_000, total * 1e9 / elapsedNanos,
+				attempts.get(), attempts.get() - total);
+		log.info(throughput);
+		assertEquals(total, parseCounter(result.getDescription()), throughput);
+	}
+
+	private static String counterDescription(int value) {
+		return "counter " + value;
+	}
+
+	private static int parseCounter(String description) {
+		return Integer.parseInt(description.substring("counter ".length()));
+	}
+
+}
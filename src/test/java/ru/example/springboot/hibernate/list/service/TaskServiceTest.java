@@ -0,0 +1,161 @@
+package ru.example.springboot.hibernate.list.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskChanges;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskPage;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.util.TaskCursor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class TaskServiceTest {
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private TaskChangeLog taskChangeLog;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void enableStatistics() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+	}
+
+	@Test
+	void findAllByUserUsernameIssuesSingleStatementRegardlessOfSize() {
+		long statementsForOneTask = countStatementsForTasks(1);
+		long statementsForManyTasks = countStatementsForTasks(25);
+
+		assertEquals(1, statementsForOneTask);
+		assertEquals(statementsForOneTask, statementsForManyTasks);
+	}
+
+	@Test
+	void pagesOfUserTasksCanBeWalkedForwardAndBack() {
+		UserEntity user = new UserEntity("page-" + UUID.randomUUID(), "password");
+		entityManager.persist(user);
+		for (int i = 0; i < 5; i++) {
+			entityManager.persist(Task.builder()
+					.description("Task number " + i)
+					.status(TaskStatus.TODO)
+					.user(user)
+					.build());
+		}
+		entityManager.flush();
+
+		TaskPage first = taskService.findPageByUserUsername(user.getUsername(), 0L, 0L, 2);
+		TaskPage second = taskService.findPageByUserUsername(user.getUsername(), TaskCursor.decode(first.getNextCursor()), 0L, 2);
+		TaskPage third = taskService.findPageByUserUsername(user.getUsername(), TaskCursor.decode(second.getNextCursor()), 0L, 2);
+		TaskPage backToSecond = taskService.findPageByUserUsername(user.getUsername(), 0L, TaskCursor.decode(third.getPreviousCursor()), 2);
+
+		assertNull(first.getPreviousCursor());
+		assertEquals(1, third.getItems().size());
+		assertNull(third.getNextCursor());
+		assertEquals(second.getItems(), backToSecond.getItems());
+		assertTrue(first.getItems().getLast().getId() < second.getItems().getFirst().getId());
+	}
+
+	@Test
+	void changesSinceCursorContainChangedTasksAndTombstones() {
+		UserEntity user = new UserEntity("changes-" + UUID.randomUUID(), "password");
+		entityManager.persist(user);
+		Task kept = Task.builder().description("Task to keep").status(TaskStatus.TODO).user(user).build();
+		Task removed = Task.builder().description("Task to remove").status(TaskStatus.TODO).user(user).build();
+		entityManager.persist(kept);
+		entityManager.persist(removed);
+		entityManager.flush();
+
+		String since = TaskCursor.encodeTime(Instant.now().minusSeconds(60));
+		taskService.deleteById(removed.getId(), user.getUsername());
+
+		TaskChanges initial = taskChangeLog.findChangesSince(user.getUsername(), null);
+		TaskChanges changes = taskChangeLog.findChangesSince(user.getUsername(), since);
+
+		assertTrue(initial.isResync());
+		assertFalse(changes.isResync());
+		assertEquals(List.of(kept.getId()), changes.getItems().stream().map(TaskDto::getId).toList());
+		assertEquals(List.of(removed.getId()), changes.getDeleted());
+	}
+
+	@Test
+	void patchOnIdDoesNotTouchAnotherUsersTask() throws Exception {
+		UserEntity owner = new UserEntity("patch-" + UUID.randomUUID(), "password");
+		UserEntity other = new UserEntity("patch-" + UUID.randomUUID(), "password");
+		entityManager.persist(owner);
+		entityManager.persist(other);
+		Task own = Task.builder().description("Own task").status(TaskStatus.TODO).user(owner).build();
+		Task foreign = Task.builder().description("Foreign task").status(TaskStatus.TODO).user(other).build();
+		entityManager.persist(own);
+		entityManager.persist(foreign);
+		entityManager.flush();
+
+		JsonPatch patch = JsonPatch.fromJson(objectMapper.readTree("[" +
+				"{\"op\":\"replace\",\"path\":\"/id\",\"value\":" + foreign.getId() + "}," +
+				"{\"op\":\"replace\",\"path\":\"/description\",\"value\":\"Patched task\"}]"));
+		Task patched = taskService.update(own.getId(), owner.getUsername(), patch, null);
+		entityManager.flush();
+		entityManager.clear();
+
+		assertEquals(own.getId(), patched.getId());
+		assertEquals("Patched task", entityManager.find(Task.class, own.getId()).getDescription());
+		Task untouched = entityManager.find(Task.class, foreign.getId());
+		assertEquals("Foreign task", untouched.getDescription());
+		assertEquals(other.getId(), untouched.getUser().getId());
+	}
+
+	private long countStatementsForTasks(int taskCount) {
+		UserEntity user = new UserEntity("stmt-" + UUID.randomUUID(), "password");
+		entityManager.persist(user);
+		for (int i = 0; i < taskCount; i++) {
+			entityManager.persist(Task.builder()
+					.description("Task number " + i)
+					.status(TaskStatus.TODO)
+					.user(user)
+					.build());
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics.clear();
+		List<TaskDto> tasks = taskService.findAllByUserUsername(user.getUsername());
+
+		assertEquals(taskCount, tasks.size());
+		assertEquals(user.getUsername(), tasks.getFirst().getOwner());
+		return statistics.getPrepareStatementCount();
+	}
+
+}
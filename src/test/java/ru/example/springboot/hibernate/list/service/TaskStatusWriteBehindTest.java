@@ -0,0 +1,109 @@
+package ru.example.springboot.hibernate.list.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.example.springboot.hibernate.list.model.Task;
+import ru.example.springboot.hibernate.list.model.TaskDto;
+import ru.example.springboot.hibernate.list.model.TaskStatus;
+import ru.example.springboot.hibernate.list.model.UserEntity;
+import ru.example.springboot.hibernate.list.repository.TaskRepository;
+import ru.example.springboot.hibernate.list.repository.UserRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Окно записи увеличено, чтобы статусы записывались только явным сбросом или чтением задачи.
+ */
+@SpringBootTest(properties = {
+		"task-status-write-behind.enabled=true",
+		"task-status-write-behind.window=PT1H"
+})
+class TaskStatusWriteBehindTest {
+
+	private static final int FLIPS = 20;
+
+	@Autowired
+	private TaskService taskService;
+
+	@Autowired
+	private TaskStatusWriteBehind statusWriteBehind;
+
+	@Autowired
+	private TaskRepository taskRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private UserEntity user;
+	private Task task;
+
+	@BeforeEach
+	void createTask() {
+		user = userRepository.save(new UserEntity("wb-" + UUID.randomUUID(), "password"));
+		task = taskRepository.save(Task.builder()
+				.description("Task with flipping status")
+				.status(TaskStatus.TODO)
+				.user(user)
+				.build());
+	}
+
+	@AfterEach
+	void deleteTask() {
+		taskRepository.deleteById(task.getId());
+		userRepository.deleteById(user.getId());
+	}
+
+	@Test
+	void statusFlipsAreCoalescedIntoSingleUpdate() {
+		Long initialVersion = taskRepository.findVersionById(task.getId()).orElseThrow();
+
+		TaskDto accepted = null;
+		for (int i = 1; i <= FLIPS; i++) {
+			TaskStatus status = i % 2 == 0 ? TaskStatus.TODO : TaskStatus.IN_PROGRESS;
+			accepted = taskService.update(task.getId(), user.getUsername(), status);
+		}
+
+		assertNull(accepted.getVersion());
+		assertEquals(initialVersion, taskRepository.findVersionById(task.getId()).orElseThrow());
+
+		statusWriteBehind.flushAll();
+
+		TaskDto written = taskService.findDtoById(task.getId());
+		assertEquals(TaskStatus.TODO, written.getStatus());
+		assertEquals(initialVersion + 1, written.getVersion());
+	}
+
+	@Test
+	void readOfTaskWritesItsPendingStatus() {
+		taskService.update(task.getId(), user.getUsername(), TaskStatus.IN_PROGRESS);
+
+		assertEquals(TaskStatus.IN_PROGRESS, taskService.findDtoById(task.getId()).getStatus());
+	}
+
+	@Test
+	void statusFlushedInRolledBackTransactionIsRequeued() {
+		taskService.update(task.getId(), user.getUsername(), TaskStatus.DONE);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			statusWriteBehind.flush(List.of(task.getId()));
+			status.setRollbackOnly();
+		});
+		assertEquals(TaskStatus.TODO, taskRepository.findProjectedById(task.getId()).orElseThrow().getStatus());
+
+		statusWriteBehind.flushAll();
+
+		assertEquals(TaskStatus.DONE, taskRepository.findProjectedById(task.getId()).orElseThrow().getStatus());
+	}
+
+}